@@ -1,7 +1,18 @@
+import java.util.concurrent.ForkJoinPool;
 /**
  * Runner file for Task 1 HW_6. 
  */
 public final class BackyardDig {
+    /** Index of the optional algorithm name in the arguments. */
+    private static final int ALGORITHMINDEX = 2;
+    /** Index of the optional edges per run of the external algorithm. */
+    private static final int RUNEDGESINDEX = 3;
+    /**
+     * Candidate paths per toy from which a yard counts as dense, where
+     * dropping heavy edges beats sorting them all. Measured on random
+     * yards of 2500 to 100000 toys.
+     */
+    private static final int DENSE_RATIO = 64;
     
     /**
      * Empty constructor to resolve Checkstyle.
@@ -12,15 +23,46 @@ public final class BackyardDig {
     
     /**
      * Create an output file with the result to the problem.
-     * @param args The input file's name and the output file's name.
+     * @param args The input file's name, the output file's name, and
+     *     optionally the algorithm: auto (the default), kruskal, filter,
+     *     boruvka, prim or external. Auto picks filter for dense yards
+     *     and kruskal for the others. External never loads the whole
+     *     edge file and takes the edges sorted in memory per run as an
+     *     optional fourth argument.
      */
     public static void main(String[] args) {
         String inputf = args[0];
         String outputf = args[1];
+        String algorithm = args.length > ALGORITHMINDEX
+            ? args[ALGORITHMINDEX] : "auto";
     
+        if ("external".equals(algorithm)) {
+            int runEdges = args.length > RUNEDGESINDEX
+                ? Integer.parseInt(args[RUNEDGESINDEX])
+                : ExternalMST.DEFAULT_RUN_EDGES;
+            new ExternalMST(inputf, outputf, runEdges).run();
+            return;
+        }
+
         BackyardDigGraph dig  =  new BackyardDigGraph(inputf, outputf);
 
-        dig.kruskals();               
+        if ("auto".equals(algorithm)) {
+            boolean dense = dig.edgeCount()
+                    >= (long) DENSE_RATIO * dig.vertexCount();
+            algorithm = dense ? "filter" : "kruskal";
+        }
+
+        if ("kruskal".equals(algorithm)) {
+            dig.kruskals();
+        } else if ("filter".equals(algorithm)) {
+            dig.filterKruskals(ForkJoinPool.commonPool());
+        } else if ("boruvka".equals(algorithm)) {
+            dig.boruvka(ForkJoinPool.commonPool());
+        } else if ("prim".equals(algorithm)) {
+            dig.prims();
+        } else {
+            System.out.println("Unknown algorithm " + algorithm + ".");
+        }
     }
 
 }
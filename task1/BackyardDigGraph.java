@@ -3,7 +3,9 @@ import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Given a file containing the toy coordinates, the digging paths, 
@@ -11,6 +13,12 @@ import java.util.Scanner;
  * a file with the minimum amount of work required, and the paths to dig.
  */
 public class BackyardDigGraph {
+    /** Initial capacity of the edge arrays. */
+    private static final int DEFAULT_EDGES = 16;
+    /** Bits of the weight sorted in each radix sort pass. */
+    private static final int RADIX_BITS = 8;
+    /** Number of buckets of a radix sort pass. */
+    private static final int RADIX = 1 << RADIX_BITS;
     /** 
      * 2D integer array that stores the 'vertex' number for each car
      * at its coordinates.
@@ -18,8 +26,14 @@ public class BackyardDigGraph {
     private int[][] carToNumber;
     /** ArrayList of Car coordinates at each assigned vertex number - 1. */
     private ArrayList<Car> numberToCar;
-    /** MinPQ of edges with the weights as keys. */
-    private MinPQ<Integer, Edge> edgePQ;
+    /** Number of edges read. */
+    private int edgeCount;
+    /** Vertex number of the first car of each edge. */
+    private int[] edgeCar1;
+    /** Vertex number of the second car of each edge. */
+    private int[] edgeCar2;
+    /** Weight of each edge. */
+    private int[] edgeWeight;
     /** Filename for the output file. */
     private String outputfname; 
 
@@ -40,7 +54,9 @@ public class BackyardDigGraph {
             
             this.carToNumber = new int[row][col];
             this.numberToCar = new ArrayList<>();    
-            this.edgePQ = new MinPQ<>();
+            this.edgeCar1 = new int[DEFAULT_EDGES];
+            this.edgeCar2 = new int[DEFAULT_EDGES];
+            this.edgeWeight = new int[DEFAULT_EDGES];
             
             inf.nextLine(); //take out the /n
             inf.nextLine();
@@ -67,11 +83,8 @@ public class BackyardDigGraph {
                     carCounter++;   
                 }
 
-                Edge connE = new Edge(
-                        this.carToNumber[car1.x][car1.y], 
-                        this.carToNumber[car2.x][car2.y],
-                        weight);    
-                this.edgePQ.insert(connE.weight, connE);
+                this.addEdge(this.carToNumber[car1.x][car1.y],
+                        this.carToNumber[car2.x][car2.y], weight);
 
                 inf.nextLine();
             }
@@ -85,32 +98,197 @@ public class BackyardDigGraph {
         
     }
     
+    /**
+     * Number of toys, the vertices of the graph.
+     * @return the vertex count
+     */
+    int vertexCount() {
+        return this.numberToCar.size();
+    }
+
+    /**
+     * Number of candidate paths, the edges of the graph.
+     * @return the edge count
+     */
+    int edgeCount() {
+        return this.edgeCount;
+    }
+
+    /**
+     * First vertex of an edge, numbered from 0.
+     * @param e the edge number
+     * @return the vertex
+     */
+    int either(int e) {
+        return this.edgeCar1[e] - 1;
+    }
+
+    /**
+     * Second vertex of an edge, numbered from 0.
+     * @param e the edge number
+     * @return the vertex
+     */
+    int other(int e) {
+        return this.edgeCar2[e] - 1;
+    }
+
+    /**
+     * Work required to dig an edge.
+     * @param e the edge number
+     * @return the weight
+     */
+    int weight(int e) {
+        return this.edgeWeight[e];
+    }
+
+    /**
+     * Adds an edge to the edge arrays, growing them if they are full.
+     * @param c1 number associated with the car of edge
+     * @param c2 number associated with the second car
+     * @param w weight of the edge
+     */
+    private void addEdge(int c1, int c2, int w) {
+        if (this.edgeCount == this.edgeWeight.length) {
+            int capacity = this.edgeCount * 2;
+            this.edgeCar1 = Arrays.copyOf(this.edgeCar1, capacity);
+            this.edgeCar2 = Arrays.copyOf(this.edgeCar2, capacity);
+            this.edgeWeight = Arrays.copyOf(this.edgeWeight, capacity);
+        }
+        this.edgeCar1[this.edgeCount] = c1;
+        this.edgeCar2[this.edgeCount] = c2;
+        this.edgeWeight[this.edgeCount] = w;
+        this.edgeCount++;
+    }
+
+    /**
+     * Sorts the edges by weight with an LSD radix sort, one byte of the
+     * weight per pass. Each pass is stable, so edges of equal weight
+     * keep their input order. Passes where every edge has the same byte
+     * are skipped, so small weights take one or two passes.
+     * @return the edge numbers in order of weight
+     */
+    private int[] sortedEdges() {
+        int[] order = new int[this.edgeCount];
+        int[] buffer = new int[this.edgeCount];
+        for (int i = 0; i < this.edgeCount; i++) {
+            order[i] = i;
+        }
+        int[] counts = new int[RADIX + 1];
+        for (int shift = 0; shift < Integer.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < this.edgeCount; i++) {
+                counts[this.digit(order[i], shift) + 1]++;
+            }
+            if (counts[this.digit(0, shift) + 1] == this.edgeCount) {
+                continue;
+            }
+            for (int b = 0; b < RADIX; b++) {
+                counts[b + 1] += counts[b];
+            }
+            for (int i = 0; i < this.edgeCount; i++) {
+                buffer[counts[this.digit(order[i], shift)]++] = order[i];
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+
+    /**
+     * One byte of the weight of an edge, with the sign bit flipped so
+     * negative weights sort before positive ones.
+     * @param e the edge number
+     * @param shift position of the byte in the weight
+     * @return the byte, from 0 to RADIX - 1
+     */
+    private int digit(int e, int shift) {
+        return ((this.edgeWeight[e] ^ Integer.MIN_VALUE) >>> shift)
+                & (RADIX - 1);
+    }
+
     /**
      * Applies Kruskal's algorithm to find the minimum spanning tree, 
      * thus solving the backyard dig problem. 
      */
     public void kruskals() {
-        UnionFindQuickUnions connected = 
-                new UnionFindQuickUnions(this.numberToCar.size());
-        ArrayList<Edge> results = new ArrayList<>();
-        int totalWeight = 0;
+        this.writeTree(this.kruskalTree());
+    }
+
+    /**
+     * Runs Kruskal's algorithm over the radix sorted edges.
+     * @return numbers of the edges of the tree, by weight
+     */
+    private int[] kruskalTree() {
+        int cars = this.numberToCar.size();
+        UnionFindQuickUnions connected = new UnionFindQuickUnions(
+                Math.max(cars, 1));
+        int[] order = this.sortedEdges();
+        int[] results = new int[Math.max(cars - 1, 0)];
         
         int count = 0;
-        while (count < this.numberToCar.size() - 1) {
-            Edge next = this.edgePQ.findMinValue();
-            
-            if (connected.find(next.car1 - 1) 
-                    != connected.find(next.car2 - 1)) {
-                results.add(next);
-                connected.union(next.car1 - 1, next.car2 - 1);
-                totalWeight += next.weight;
+        for (int i = 0; i < order.length && count < cars - 1; i++) {
+            int e = order[i];
+            int a = this.edgeCar1[e] - 1;
+            int b = this.edgeCar2[e] - 1;
+            if (connected.find(a) != connected.find(b)) {
+                results[count] = e;
+                connected.union(a, b);
                 count++;
             }
-            
-            this.edgePQ.deleteMin();
-            
         }
 
+        return Arrays.copyOf(results, count);
+    }
+
+    /**
+     * Applies Filter-Kruskal to find the minimum spanning tree, with the
+     * filtering of heavy edges run in parallel on a pool. It picks the
+     * same paths as kruskals().
+     * @param pool pool the filtering runs on
+     */
+    public void filterKruskals(ForkJoinPool pool) {
+        this.writeTree(new FilterKruskal(this, pool).run());
+    }
+
+    /**
+     * Applies Boruvka's algorithm to find the minimum spanning tree,
+     * with each round run in parallel on a pool. It picks the same paths
+     * as kruskals().
+     * @param pool pool the rounds run on
+     */
+    public void boruvka(ForkJoinPool pool) {
+        this.writeTree(new BoruvkaMST(this, pool).run());
+    }
+
+    /**
+     * Applies Prim's algorithm with an indexed heap to find the minimum
+     * spanning tree. It picks the same paths as kruskals().
+     */
+    public void prims() {
+        this.writeTree(new PrimMST(this).run());
+    }
+
+    /**
+     * Writes the paths of a spanning tree and their total work to the
+     * output file.
+     * @param tree numbers of the edges of the tree
+     */
+    private void writeTree(int[] tree) {
+        int totalWeight = 0;
+        for (int e : tree) {
+            totalWeight += this.edgeWeight[e];
+        }
+        this.writeResults(totalWeight, tree, tree.length);
+    }
+
+    /**
+     * Writes the total work and the paths to dig to the output file.
+     * @param totalWeight the total work
+     * @param results numbers of the edges to dig
+     * @param count number of edges in results
+     */
+    private void writeResults(int totalWeight, int[] results, int count) {
         try {
             File output = new File(this.outputfname);
             
@@ -120,10 +298,10 @@ public class BackyardDigGraph {
             FileWriter out = new FileWriter(output);
             out.write(totalWeight + "\n\n");
 
-            for (int i = 0; i < results.size(); i++) {
-                Edge curr = results.get(i);
-                Car c1 = this.numberToCar.get(curr.car1 - 1);
-                Car c2 = this.numberToCar.get(curr.car2 - 1);
+            for (int i = 0; i < count; i++) {
+                int e = results[i];
+                Car c1 = this.numberToCar.get(this.edgeCar1[e] - 1);
+                Car c2 = this.numberToCar.get(this.edgeCar2[e] - 1);
                 out.write(c1 + " " + c2 + "\n");
             }
 
@@ -138,11 +316,7 @@ public class BackyardDigGraph {
     /**
      * Private class that changes a string to coordinates. 
      */
-    protected class Car {
-        /** start index of y index substring.*/
-        private static final int YPOSITION_LOCATOR = 3;
-        /** final index of y index substring.*/
-        private static final int YPOSITION_LOCATOR2 = 4;
+    protected static class Car {
         /** x coordinate of the toy.*/
         public int x;
         /** y coordinate of the toy.*/
@@ -151,12 +325,13 @@ public class BackyardDigGraph {
         
         /**
          * Constructor for the car coordinates. 
-         * @param form String of the form "(num1, num2)"
+         * @param form String of the form "(num1,num2)"
          */
         public Car(String form) {
-            this.x = Integer.parseInt(form.substring(1, 2));
-            this.y = Integer.parseInt(form.substring(YPOSITION_LOCATOR,
-                    YPOSITION_LOCATOR2));
+            int comma = form.indexOf(',');
+            this.x = Integer.parseInt(form.substring(1, comma));
+            this.y = Integer.parseInt(form.substring(comma + 1,
+                    form.length() - 1));
         }
         
         /** 
@@ -167,30 +342,4 @@ public class BackyardDigGraph {
             return "(" + this.x + "," + this.y + ")";
         }
     }
-
-    /**
-     * Private class that easily identifies the edge by the vertices
-     * or cars connected. 
-     */
-    protected class Edge {
-        /** vertex 1 of car. **/
-        public int car1;
-        /** vertex 2 of car. **/
-        public int car2;
-        /** weight of edge. **/
-        public int weight;
-        
-        
-        /** 
-         * edge constructor.
-         * @param c1 number associated with the car of edge
-         * @param c2 number associated with the second car
-         * @param w weight of the edge
-         */
-        public Edge(int c1, int c2, int w) {
-            this.car1 = c1;
-            this.car2 = c2;
-            this.weight = w;
-        }    
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,234 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+/**
+ * Boruvka's algorithm on the edges of a BackyardDigGraph, run in
+ * parallel on a ForkJoinPool. Each round, tasks over the remaining edges
+ * drop those inside a component and record the cheapest edge leaving
+ * each component with a compare-and-set; the cheapest edges are then
+ * added and their components merged, and every toy is relabelled with
+ * its new component in parallel. Each round at least halves the number
+ * of components.
+ * Edges are ordered by weight and then by edge number, so the tree is
+ * the one kruskals() finds, and it is returned in that order.
+ */
+public class BoruvkaMST {
+    /** Edges or toys a task handles without splitting further. */
+    private static final int GRAIN = 4096;
+    /** Cheapest edge of a component that has none. */
+    private static final long NONE = Long.MAX_VALUE;
+    /** Mask of the edge number in a key. */
+    private static final long EDGE_MASK = 0xFFFFFFFFL;
+    /** The graph. */
+    private final BackyardDigGraph graph;
+    /** Pool the rounds run on. */
+    private final ForkJoinPool pool;
+    /** Component of each toy, named by its union-find root. */
+    private int[] component;
+    /** Key of the cheapest edge leaving each component. */
+    private AtomicLongArray cheapest;
+
+    /**
+     * Constructor for a graph.
+     * @param g the graph
+     * @param forkJoin pool the rounds run on
+     */
+    public BoruvkaMST(BackyardDigGraph g, ForkJoinPool forkJoin) {
+        this.graph = g;
+        this.pool = forkJoin;
+    }
+
+    /**
+     * Finds the minimum spanning tree.
+     * @return numbers of the edges of the tree, by weight
+     */
+    public int[] run() {
+        int cars = this.graph.vertexCount();
+        int edges = this.graph.edgeCount();
+        UnionFindQuickUnions connected =
+                new UnionFindQuickUnions(Math.max(cars, 1));
+        this.component = new int[cars];
+        this.cheapest = new AtomicLongArray(cars);
+        for (int v = 0; v < cars; v++) {
+            this.component[v] = v;
+            this.cheapest.set(v, NONE);
+        }
+        int[] alive = new int[edges];
+        for (int e = 0; e < edges; e++) {
+            alive[e] = e;
+        }
+        long[] tree = new long[Math.max(cars - 1, 0)];
+        int count = 0;
+        int remaining = edges;
+
+        while (count < tree.length) {
+            remaining = this.pool.invoke(new Cheapest(this, alive, 0,
+                    remaining));
+            if (remaining == 0) {
+                break;
+            }
+            for (int c = 0; c < cars; c++) {
+                long key = this.cheapest.get(c);
+                if (key == NONE) {
+                    continue;
+                }
+                this.cheapest.set(c, NONE);
+                int e = (int) (key & EDGE_MASK);
+                int a = this.graph.either(e);
+                int b = this.graph.other(e);
+                if (connected.find(a) != connected.find(b)) {
+                    connected.union(a, b);
+                    tree[count++] = key;
+                }
+            }
+            this.pool.invoke(new Relabel(this, connected, 0, cars));
+        }
+
+        Arrays.sort(tree, 0, count);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (int) (tree[i] & EDGE_MASK);
+        }
+        return result;
+    }
+
+    /**
+     * Keeps an edge if it leaves its components, and offers it as the
+     * cheapest edge of both.
+     * @param e the edge number
+     * @return true if the edge joins two components
+     */
+    private boolean offer(int e) {
+        int ca = this.component[this.graph.either(e)];
+        int cb = this.component[this.graph.other(e)];
+        if (ca == cb) {
+            return false;
+        }
+        long key = ((long) this.graph.weight(e) << Integer.SIZE) | e;
+        lower(this.cheapest, ca, key);
+        lower(this.cheapest, cb, key);
+        return true;
+    }
+
+    /**
+     * Sets an entry to a key if the key is lower.
+     * @param keys the entries
+     * @param i index of the entry
+     * @param key the key
+     */
+    private static void lower(AtomicLongArray keys, int i, long key) {
+        long current = keys.get(i);
+        while (key < current && !keys.compareAndSet(i, current, key)) {
+            current = keys.get(i);
+        }
+    }
+
+    /**
+     * Task that drops the edges of a range inside one component, moves
+     * the others to the front of the range, and offers them as the
+     * cheapest edges of their components.
+     */
+    private static class Cheapest extends RecursiveTask<Integer> {
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+        /** The run the edges belong to. */
+        private final BoruvkaMST state;
+        /** The edge numbers. */
+        private final int[] edges;
+        /** First position of the range. */
+        private final int lo;
+        /** One past the last position of the range. */
+        private final int hi;
+
+        /**
+         * Constructor for a range of edges.
+         * @param run the run
+         * @param arr the edge numbers
+         * @param from first position
+         * @param to one past the last position
+         */
+        Cheapest(BoruvkaMST run, int[] arr, int from, int to) {
+            this.state = run;
+            this.edges = arr;
+            this.lo = from;
+            this.hi = to;
+        }
+
+        /**
+         * Scans the range, or splits it.
+         * @return number of edges kept
+         */
+        protected Integer compute() {
+            if (this.hi - this.lo <= GRAIN) {
+                int kept = this.lo;
+                for (int i = this.lo; i < this.hi; i++) {
+                    if (this.state.offer(this.edges[i])) {
+                        this.edges[kept++] = this.edges[i];
+                    }
+                }
+                return kept - this.lo;
+            }
+            int mid = (this.lo + this.hi) >>> 1;
+            Cheapest left = new Cheapest(this.state, this.edges, this.lo,
+                    mid);
+            Cheapest right = new Cheapest(this.state, this.edges, mid,
+                    this.hi);
+            invokeAll(left, right);
+            int leftKept = left.join();
+            int rightKept = right.join();
+            System.arraycopy(this.edges, mid, this.edges,
+                    this.lo + leftKept, rightKept);
+            return leftKept + rightKept;
+        }
+    }
+
+    /**
+     * Task that sets the component of a range of toys to their
+     * union-find root after the merges of a round.
+     */
+    private static class Relabel extends RecursiveAction {
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+        /** The run the toys belong to. */
+        private final BoruvkaMST state;
+        /** Components merged so far, only read by this task. */
+        private final UnionFindQuickUnions connected;
+        /** First toy of the range. */
+        private final int lo;
+        /** One past the last toy of the range. */
+        private final int hi;
+
+        /**
+         * Constructor for a range of toys.
+         * @param run the run
+         * @param uf components merged so far
+         * @param from first toy
+         * @param to one past the last toy
+         */
+        Relabel(BoruvkaMST run, UnionFindQuickUnions uf, int from, int to) {
+            this.state = run;
+            this.connected = uf;
+            this.lo = from;
+            this.hi = to;
+        }
+
+        /**
+         * Relabels the range, or splits it.
+         */
+        protected void compute() {
+            if (this.hi - this.lo <= GRAIN) {
+                for (int v = this.lo; v < this.hi; v++) {
+                    this.state.component[v] = this.connected.root(v);
+                }
+            } else {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new Relabel(this.state, this.connected, this.lo,
+                        mid),
+                        new Relabel(this.state, this.connected, mid,
+                                this.hi));
+            }
+        }
+    }
+}
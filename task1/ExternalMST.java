@@ -0,0 +1,387 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+/**
+ * Solves the backyard dig problem for edge files larger than the heap.
+ * The input is read once, a run of edges at a time; each run is sorted
+ * by weight and written to a temporary file. The runs are then merged
+ * lazily, a few records of each in memory at once, and the merged edges
+ * are fed to Kruskal's algorithm until the tree is complete. Only the
+ * coordinate table, the union-find array and the tree itself stay in
+ * memory. If there are more runs than can be merged at once, groups of
+ * neighboring runs are merged into longer runs first.
+ * Runs are sorted stably and merged with ties going to the earlier run,
+ * so edges of equal weight keep their input order and the paths are the
+ * same as those of BackyardDigGraph.kruskals().
+ */
+public class ExternalMST {
+    /** Edges per run if not given. */
+    public static final int DEFAULT_RUN_EDGES = 1 << 20;
+    /** Most runs merged at once. */
+    private static final int FAN_IN = 64;
+    /** Bytes of the read and write buffer of each run. */
+    private static final int BUFFER_BYTES = 1 << 16;
+    /** Mask of the position in a sort key. */
+    private static final long POSITION_MASK = 0xFFFFFFFFL;
+    /** Filename for the input file. */
+    private final String inputfname;
+    /** Filename for the output file. */
+    private final String outputfname;
+    /** Edges sorted in memory per run. */
+    private final int runEdges;
+    /** Vertex number of the car at each coordinate, or 0. */
+    private int[][] carToNumber;
+    /** Car coordinates at each assigned vertex number - 1. */
+    private ArrayList<BackyardDigGraph.Car> numberToCar;
+    /** Temporary files of the runs, deleted when the run ends. */
+    private ArrayList<File> temporary;
+
+    /**
+     * Constructor for a problem in a file.
+     * @param inputfile name of the input file
+     * @param outputfile name of the output file
+     * @param edgesPerRun edges sorted in memory per run, at least 1
+     */
+    public ExternalMST(String inputfile, String outputfile,
+            int edgesPerRun) {
+        if (edgesPerRun < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.inputfname = inputfile;
+        this.outputfname = outputfile;
+        this.runEdges = edgesPerRun;
+    }
+
+    /**
+     * Finds the minimum spanning tree and writes the total work and the
+     * paths to dig to the output file.
+     */
+    public void run() {
+        this.temporary = new ArrayList<>();
+        try {
+            List<File> runs = this.formRuns();
+            while (runs.size() > FAN_IN) {
+                runs = this.mergePass(runs);
+            }
+            this.kruskals(runs);
+        } catch (FileNotFoundException e) {
+            System.out.println("Invald file. Please try again");
+            System.exit(0);
+        } catch (IOException e) {
+            System.out.println("Could not write temporary runs.");
+            System.exit(0);
+        } finally {
+            for (File f : this.temporary) {
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads the input, numbering the cars, and writes the edges as
+     * sorted runs.
+     * @return the runs, in input order
+     * @throws IOException if the input cannot be read or a run written
+     */
+    private List<File> formRuns() throws IOException {
+        ArrayList<File> runs = new ArrayList<>();
+        int[] car1 = new int[this.runEdges];
+        int[] car2 = new int[this.runEdges];
+        int[] weight = new int[this.runEdges];
+        int count = 0;
+
+        try (BufferedReader in = new BufferedReader(
+                new FileReader(this.inputfname))) {
+            String[] size = in.readLine().trim().split("\\s+");
+            int row = Integer.parseInt(size[0]);
+            int col = Integer.parseInt(size[1]);
+            this.carToNumber = new int[row][col];
+            this.numberToCar = new ArrayList<>();
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length < 3) {
+                    continue;
+                }
+                car1[count] = this.number(parts[0]);
+                car2[count] = this.number(parts[1]);
+                weight[count] = Integer.parseInt(parts[2]);
+                count++;
+                if (count == this.runEdges) {
+                    runs.add(this.writeRun(car1, car2, weight, count));
+                    count = 0;
+                }
+            }
+        }
+        if (count > 0) {
+            runs.add(this.writeRun(car1, car2, weight, count));
+        }
+        return runs;
+    }
+
+    /**
+     * Vertex number of a car, numbering it if it is new.
+     * @param form String of the form "(num1,num2)"
+     * @return the vertex number, from 1
+     */
+    private int number(String form) {
+        BackyardDigGraph.Car car = new BackyardDigGraph.Car(form);
+        if (this.carToNumber[car.x][car.y] == 0) {
+            this.numberToCar.add(car);
+            this.carToNumber[car.x][car.y] = this.numberToCar.size();
+        }
+        return this.carToNumber[car.x][car.y];
+    }
+
+    /**
+     * Sorts edges by weight, keeping equal weights in order, and writes
+     * them to a new run.
+     * @param car1 first car of each edge
+     * @param car2 second car of each edge
+     * @param weight weight of each edge
+     * @param count number of edges
+     * @return the run
+     * @throws IOException if the run cannot be written
+     */
+    private File writeRun(int[] car1, int[] car2, int[] weight, int count)
+            throws IOException {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) weight[i] << Integer.SIZE) | i;
+        }
+        Arrays.sort(keys);
+        File file = this.newRun();
+        try (DataOutputStream out = open(file)) {
+            out.writeLong(count);
+            for (int j = 0; j < count; j++) {
+                int i = (int) (keys[j] & POSITION_MASK);
+                out.writeInt(weight[i]);
+                out.writeInt(car1[i]);
+                out.writeInt(car2[i]);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Merges groups of neighboring runs into longer runs.
+     * @param runs the runs, in input order
+     * @return the longer runs, in input order
+     * @throws IOException if a run cannot be read or written
+     */
+    private List<File> mergePass(List<File> runs) throws IOException {
+        ArrayList<File> merged = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i += FAN_IN) {
+            List<File> group = runs.subList(i,
+                    Math.min(i + FAN_IN, runs.size()));
+            long total = 0;
+            for (File f : group) {
+                total += (f.length() - Long.BYTES) / RunReader.RECORD_BYTES;
+            }
+            File file = this.newRun();
+            try (DataOutputStream out = open(file)) {
+                out.writeLong(total);
+                this.merge(group, r -> {
+                    out.writeInt(r.weight);
+                    out.writeInt(r.car1);
+                    out.writeInt(r.car2);
+                    return true;
+                });
+            }
+            for (File f : group) {
+                f.delete();
+            }
+            merged.add(file);
+        }
+        return merged;
+    }
+
+    /**
+     * Applies Kruskal's algorithm to the merged runs and writes the
+     * result.
+     * @param runs the runs, in input order
+     * @throws IOException if a run cannot be read
+     */
+    private void kruskals(List<File> runs) throws IOException {
+        int cars = this.numberToCar.size();
+        UnionFindQuickUnions connected =
+                new UnionFindQuickUnions(Math.max(cars, 1));
+        int[] tree1 = new int[Math.max(cars - 1, 0)];
+        int[] tree2 = new int[tree1.length];
+        int[] count = new int[1];
+        int[] totalWeight = new int[1];
+
+        this.merge(runs, r -> {
+            if (count[0] == tree1.length) {
+                return false;
+            }
+            if (connected.find(r.car1 - 1) != connected.find(r.car2 - 1)) {
+                connected.union(r.car1 - 1, r.car2 - 1);
+                tree1[count[0]] = r.car1;
+                tree2[count[0]] = r.car2;
+                totalWeight[0] += r.weight;
+                count[0]++;
+            }
+            return true;
+        });
+
+        try {
+            FileWriter out = new FileWriter(new File(this.outputfname));
+            out.write(totalWeight[0] + "\n\n");
+            for (int i = 0; i < count[0]; i++) {
+                out.write(this.numberToCar.get(tree1[i] - 1) + " "
+                        + this.numberToCar.get(tree2[i] - 1) + "\n");
+            }
+            out.close();
+        } catch (IOException e) {
+            System.out.println("Invalid output file name.");
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Merges runs, passing their edges in order of weight to a sink.
+     * Edges of equal weight come from the earlier run first.
+     * @param runs the runs, in input order
+     * @param sink where the edges go
+     * @throws IOException if a run cannot be read or the sink fails
+     */
+    private void merge(List<File> runs, EdgeSink sink) throws IOException {
+        RunReader[] readers = new RunReader[runs.size()];
+        IndexedMinPQ heads = new IndexedMinPQ(runs.size());
+        try {
+            for (int r = 0; r < readers.length; r++) {
+                readers[r] = new RunReader(runs.get(r));
+                if (readers[r].next()) {
+                    heads.insert(r, readers[r].key(r));
+                }
+            }
+            while (!heads.isEmpty()) {
+                int r = heads.deleteMin();
+                if (!sink.accept(readers[r])) {
+                    return;
+                }
+                if (readers[r].next()) {
+                    heads.insert(r, readers[r].key(r));
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a temporary file for a run.
+     * @return the file
+     * @throws IOException if it cannot be created
+     */
+    private File newRun() throws IOException {
+        File file = File.createTempFile("backyard-run", ".bin");
+        file.deleteOnExit();
+        this.temporary.add(file);
+        return file;
+    }
+
+    /**
+     * Opens a run for writing.
+     * @param file the run
+     * @return the stream
+     * @throws IOException if it cannot be opened
+     */
+    private static DataOutputStream open(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), BUFFER_BYTES));
+    }
+
+    /**
+     * Receives merged edges.
+     */
+    private interface EdgeSink {
+        /**
+         * Takes the current edge of a run.
+         * @param edge the run positioned at the edge
+         * @return false to stop the merge
+         * @throws IOException if the edge cannot be written
+         */
+        boolean accept(RunReader edge) throws IOException;
+    }
+
+    /**
+     * Reads the edges of a run one at a time.
+     */
+    private static class RunReader {
+        /** Bytes of one edge: weight and two cars. */
+        static final int RECORD_BYTES = 3 * Integer.BYTES;
+        /** The run. */
+        private final DataInputStream in;
+        /** Edges not read yet. */
+        private long remaining;
+        /** Weight of the current edge. */
+        private int weight;
+        /** First car of the current edge. */
+        private int car1;
+        /** Second car of the current edge. */
+        private int car2;
+
+        /**
+         * Constructor that opens a run.
+         * @param file the run
+         * @throws IOException if it cannot be read
+         */
+        RunReader(File file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file), BUFFER_BYTES));
+            this.remaining = this.in.readLong();
+        }
+
+        /**
+         * Moves to the next edge.
+         * @return false if the run is finished
+         * @throws IOException if it cannot be read
+         */
+        boolean next() throws IOException {
+            if (this.remaining == 0) {
+                return false;
+            }
+            this.remaining--;
+            this.weight = this.in.readInt();
+            this.car1 = this.in.readInt();
+            this.car2 = this.in.readInt();
+            return true;
+        }
+
+        /**
+         * Merge key of the current edge: its weight, then its run.
+         * @param run the run number
+         * @return the key
+         */
+        long key(int run) {
+            return ((long) this.weight << Integer.SIZE) | run;
+        }
+
+        /**
+         * Closes the run.
+         * @throws IOException if it cannot be closed
+         */
+        void close() throws IOException {
+            this.in.close();
+        }
+    }
+}
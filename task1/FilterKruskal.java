@@ -0,0 +1,218 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+/**
+ * Filter-Kruskal on the edges of a BackyardDigGraph. The edges are split
+ * around a pivot like quicksort; the light half is solved first, and
+ * then every heavy edge whose toys are already connected is filtered
+ * out before the heavy half is split any further, so on dense yards
+ * most heavy edges are dropped without ever being sorted. Small ranges
+ * are sorted and run through plain Kruskal. The filtering runs in
+ * parallel on a ForkJoinPool while no union is in progress.
+ * Edges are ordered by weight and then by edge number, the same order
+ * the stable sort of kruskals() gives, so the same paths are picked.
+ */
+public class FilterKruskal {
+    /** Ranges at most this long are sorted instead of split. */
+    private static final int BASE = 1024;
+    /** Edges a task filters without splitting further. */
+    private static final int GRAIN = 4096;
+    /** Mask of the edge number in a key. */
+    private static final long EDGE_MASK = 0xFFFFFFFFL;
+    /** The graph. */
+    private final BackyardDigGraph graph;
+    /** Pool the filtering runs on. */
+    private final ForkJoinPool pool;
+    /** Components connected so far. */
+    private UnionFindQuickUnions connected;
+    /** Edges of the tree, in the order they were added. */
+    private int[] tree;
+    /** Number of edges in the tree. */
+    private int count;
+
+    /**
+     * Constructor for a graph.
+     * @param g the graph
+     * @param forkJoin pool the filtering runs on
+     */
+    public FilterKruskal(BackyardDigGraph g, ForkJoinPool forkJoin) {
+        this.graph = g;
+        this.pool = forkJoin;
+    }
+
+    /**
+     * Finds the minimum spanning tree.
+     * @return numbers of the edges of the tree, by weight
+     */
+    public int[] run() {
+        int cars = this.graph.vertexCount();
+        int edges = this.graph.edgeCount();
+        long[] keys = new long[edges];
+        for (int e = 0; e < edges; e++) {
+            keys[e] = ((long) this.graph.weight(e) << Integer.SIZE) | e;
+        }
+        this.connected = new UnionFindQuickUnions(Math.max(cars, 1));
+        this.tree = new int[Math.max(cars - 1, 0)];
+        this.count = 0;
+        this.solve(keys, 0, edges);
+        return Arrays.copyOf(this.tree, this.count);
+    }
+
+    /**
+     * Adds the edges of a range to the tree in order, skipping those
+     * that would close a cycle.
+     * @param keys the edge keys
+     * @param lo first position of the range
+     * @param hi one past the last position of the range
+     */
+    private void solve(long[] keys, int lo, int hi) {
+        if (this.count == this.tree.length || lo >= hi) {
+            return;
+        }
+        if (hi - lo <= BASE) {
+            Arrays.sort(keys, lo, hi);
+            for (int i = lo; i < hi && this.count < this.tree.length; i++) {
+                int e = (int) (keys[i] & EDGE_MASK);
+                int a = this.graph.either(e);
+                int b = this.graph.other(e);
+                if (this.connected.find(a) != this.connected.find(b)) {
+                    this.connected.union(a, b);
+                    this.tree[this.count++] = e;
+                }
+            }
+            return;
+        }
+        int split = partition(keys, lo, hi, pivot(keys, lo, hi));
+        this.solve(keys, lo, split);
+        if (this.count < this.tree.length) {
+            int kept = this.pool.invoke(new Filter(this, keys, split, hi));
+            this.solve(keys, split, split + kept);
+        }
+    }
+
+    /**
+     * Whether an edge joins two toys that are not connected yet.
+     * @param key the edge key
+     * @return true if the edge could still be in the tree
+     */
+    private boolean crosses(long key) {
+        int e = (int) (key & EDGE_MASK);
+        return this.connected.root(this.graph.either(e))
+                != this.connected.root(this.graph.other(e));
+    }
+
+    /**
+     * Picks the median of the keys at three distinct random positions of
+     * a range. Keys are distinct, since each holds its edge number, so
+     * one sampled key is above the median and one below: it is neither
+     * the largest nor the smallest key, and both sides of the partition
+     * are smaller than the range.
+     * @param keys the edge keys
+     * @param lo first position of the range
+     * @param hi one past the last position, at least lo + 3
+     * @return the pivot key
+     */
+    private static long pivot(long[] keys, int lo, int hi) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(lo, hi);
+        int j = random.nextInt(lo, hi - 1);
+        if (j >= i) {
+            j++;
+        }
+        int k = random.nextInt(lo, hi - 2);
+        if (k >= Math.min(i, j)) {
+            k++;
+        }
+        if (k >= Math.max(i, j)) {
+            k++;
+        }
+        long a = keys[i];
+        long b = keys[j];
+        long c = keys[k];
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    /**
+     * Moves the keys of a range up to the pivot before the others.
+     * @param keys the edge keys
+     * @param lo first position of the range
+     * @param hi one past the last position of the range
+     * @param pivot the pivot key
+     * @return position of the first key above the pivot
+     */
+    private static int partition(long[] keys, int lo, int hi, long pivot) {
+        int i = lo;
+        int j = hi - 1;
+        while (true) {
+            while (i <= j && keys[i] <= pivot) {
+                i++;
+            }
+            while (i <= j && keys[j] > pivot) {
+                j--;
+            }
+            if (i >= j) {
+                return i;
+            }
+            long swap = keys[i];
+            keys[i] = keys[j];
+            keys[j] = swap;
+        }
+    }
+
+    /**
+     * Task that drops the edges of a range whose toys are connected and
+     * moves the others to the front of the range, in order.
+     */
+    private static class Filter extends RecursiveTask<Integer> {
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+        /** The run the edges belong to. */
+        private final FilterKruskal state;
+        /** The edge keys. */
+        private final long[] keys;
+        /** First position of the range. */
+        private final int lo;
+        /** One past the last position of the range. */
+        private final int hi;
+
+        /**
+         * Constructor for a range of edges.
+         * @param run the run
+         * @param arr the edge keys
+         * @param from first position
+         * @param to one past the last position
+         */
+        Filter(FilterKruskal run, long[] arr, int from, int to) {
+            this.state = run;
+            this.keys = arr;
+            this.lo = from;
+            this.hi = to;
+        }
+
+        /**
+         * Filters the range, or splits it.
+         * @return number of edges kept
+         */
+        protected Integer compute() {
+            if (this.hi - this.lo <= GRAIN) {
+                int kept = this.lo;
+                for (int i = this.lo; i < this.hi; i++) {
+                    if (this.state.crosses(this.keys[i])) {
+                        this.keys[kept++] = this.keys[i];
+                    }
+                }
+                return kept - this.lo;
+            }
+            int mid = (this.lo + this.hi) >>> 1;
+            Filter left = new Filter(this.state, this.keys, this.lo, mid);
+            Filter right = new Filter(this.state, this.keys, mid, this.hi);
+            invokeAll(left, right);
+            int leftKept = left.join();
+            int rightKept = right.join();
+            System.arraycopy(this.keys, mid, this.keys, this.lo + leftKept,
+                    rightKept);
+            return leftKept + rightKept;
+        }
+    }
+}
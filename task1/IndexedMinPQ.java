@@ -0,0 +1,152 @@
+/**
+ * An indexed MinPQ of vertex numbers keyed by longs.
+ * Each vertex is in the heap at most once, and its heap position is
+ * tracked in an array so that its key can be decreased in logN time.
+ */
+public class IndexedMinPQ {
+    /** Heap array of vertex numbers, 1-based. */
+    private int[] heap;
+    /** Key of each vertex, indexed by vertex number. */
+    private long[] keys;
+    /** Heap position of each vertex, or 0 if it is not in the heap. */
+    private int[] position;
+    /** Number of items in the heap. */
+    private int currentSize;
+
+    /**
+     * Constructor for a heap that can hold the vertices 0 to capacity - 1.
+     * @param capacity
+     *      number of vertices
+     */
+    public IndexedMinPQ(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.heap = new int[capacity + 1];
+        this.keys = new long[capacity];
+        this.position = new int[capacity];
+        this.currentSize = 0;
+    }
+
+    /**
+     * Test if the heap is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return this.currentSize == 0;
+    }
+
+    /**
+     * Checks whether a vertex is in the heap.
+     * @param v the vertex number
+     * @return true if v is in the heap
+     */
+    public boolean contains(int v) {
+        return this.position[v] != 0;
+    }
+
+    /**
+     * Inserts a vertex that is not already in the heap.
+     * @param v the vertex number
+     * @param key the key of the vertex
+     */
+    public void insert(int v, long key) {
+        if (this.contains(v)) {
+            throw new IllegalArgumentException();
+        }
+        this.currentSize++;
+        this.keys[v] = key;
+        this.percolateUp(this.currentSize, v);
+    }
+
+    /**
+     * Lowers the key of a vertex that is in the heap.
+     * @param v the vertex number
+     * @param key the new key, no larger than the current one
+     */
+    public void decreaseKey(int v, long key) {
+        if (!this.contains(v) || key > this.keys[v]) {
+            throw new IllegalArgumentException();
+        }
+        this.keys[v] = key;
+        this.percolateUp(this.position[v], v);
+    }
+
+    /**
+     * Find the smallest key in the heap.
+     * @return the smallest key
+     */
+    public long findMinKey() {
+        if (this.isEmpty()) {
+            throw new NullPointerException();
+        }
+        return this.keys[this.heap[1]];
+    }
+
+    /**
+     * Removes the vertex with the smallest key.
+     * @return the removed vertex number
+     */
+    public int deleteMin() {
+        if (this.isEmpty()) {
+            throw new NullPointerException();
+        }
+        int min = this.heap[1];
+        this.position[min] = 0;
+        int last = this.heap[this.currentSize--];
+        if (this.currentSize > 0) {
+            this.percolateDown(1, last);
+        }
+        return min;
+    }
+
+    /**
+     * Moves v up from the hole until its parent has a smaller key.
+     * @param start the hole where v is placed
+     * @param v the vertex being placed
+     */
+    private void percolateUp(int start, int v) {
+        int hole = start;
+        long key = this.keys[v];
+        while (hole > 1 && key < this.keys[this.heap[hole / 2]]) {
+            this.place(hole, this.heap[hole / 2]);
+            hole /= 2;
+        }
+        this.place(hole, v);
+    }
+
+    /**
+     * Moves v down from the hole until its children have larger keys.
+     * @param start the hole where v is placed
+     * @param v the vertex being placed
+     */
+    private void percolateDown(int start, int v) {
+        int hole = start;
+        long key = this.keys[v];
+        int child;
+        for ( ; hole * 2 <= this.currentSize; hole = child) {
+            child = hole * 2;
+            if (child != this.currentSize
+                    && this.keys[this.heap[child + 1]]
+                        < this.keys[this.heap[child]]) {
+                child++;
+            }
+            if (this.keys[this.heap[child]] < key) {
+                this.place(hole, this.heap[child]);
+            } else {
+                break;
+            }
+        }
+        this.place(hole, v);
+    }
+
+    /**
+     * Puts a vertex in a heap slot and records its position.
+     * @param slot the heap slot
+     * @param v the vertex number
+     */
+    private void place(int slot, int v) {
+        this.heap[slot] = v;
+        this.position[v] = slot;
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.Arrays;
+/**
+ * Prim's algorithm on the edges of a BackyardDigGraph with an indexed
+ * heap of toys, so each toy is queued once and only has its key lowered.
+ * The edge arrays of the graph are shared; only the edge numbers at each
+ * toy are laid out in one array, in compressed rows. A heap operation
+ * is paid per toy and a comparison per edge, which beats sorting the
+ * edges when there are many candidate paths per toy.
+ * Edges are ordered by weight and then by edge number, so the tree is
+ * the one kruskals() finds, and it is returned in that order.
+ */
+public class PrimMST {
+    /** Key of a toy no edge reaches yet. */
+    private static final long NONE = Long.MAX_VALUE;
+    /** Mask of the edge number in a key. */
+    private static final long EDGE_MASK = 0xFFFFFFFFL;
+    /** The graph. */
+    private final BackyardDigGraph graph;
+
+    /**
+     * Constructor for a graph.
+     * @param g the graph
+     */
+    public PrimMST(BackyardDigGraph g) {
+        this.graph = g;
+    }
+
+    /**
+     * Finds the minimum spanning tree, or a forest if the yard is not
+     * connected.
+     * @return numbers of the edges of the tree, by weight
+     */
+    public int[] run() {
+        int cars = this.graph.vertexCount();
+        int edges = this.graph.edgeCount();
+        int[] start = new int[cars + 1];
+        for (int e = 0; e < edges; e++) {
+            start[this.graph.either(e) + 1]++;
+            start[this.graph.other(e) + 1]++;
+        }
+        for (int v = 0; v < cars; v++) {
+            start[v + 1] += start[v];
+        }
+        int[] neighbor = new int[2 * edges];
+        long[] edgeKey = new long[2 * edges];
+        int[] fill = Arrays.copyOf(start, cars);
+        for (int e = 0; e < edges; e++) {
+            int a = this.graph.either(e);
+            int b = this.graph.other(e);
+            long key = ((long) this.graph.weight(e) << Integer.SIZE) | e;
+            neighbor[fill[a]] = b;
+            edgeKey[fill[a]++] = key;
+            neighbor[fill[b]] = a;
+            edgeKey[fill[b]++] = key;
+        }
+
+        boolean[] inTree = new boolean[cars];
+        long[] best = new long[cars];
+        Arrays.fill(best, NONE);
+        IndexedMinPQ queue = new IndexedMinPQ(cars);
+        long[] tree = new long[Math.max(cars - 1, 0)];
+        int count = 0;
+
+        for (int s = 0; s < cars; s++) {
+            if (inTree[s]) {
+                continue;
+            }
+            int v = s;
+            while (true) {
+                inTree[v] = true;
+                for (int i = start[v]; i < start[v + 1]; i++) {
+                    int u = neighbor[i];
+                    long key = edgeKey[i];
+                    if (!inTree[u] && key < best[u]) {
+                        best[u] = key;
+                        if (queue.contains(u)) {
+                            queue.decreaseKey(u, key);
+                        } else {
+                            queue.insert(u, key);
+                        }
+                    }
+                }
+                if (queue.isEmpty()) {
+                    break;
+                }
+                v = queue.deleteMin();
+                tree[count++] = best[v];
+            }
+        }
+
+        Arrays.sort(tree, 0, count);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (int) (tree[i] & EDGE_MASK);
+        }
+        return result;
+    }
+}
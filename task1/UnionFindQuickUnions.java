@@ -53,6 +53,21 @@ public class UnionFindQuickUnions implements UnionFind {
         return parent;
     }
 
+    /**
+     * Determine the name of the set containing the specified element
+     * without compressing the path to it, so any number of threads can
+     * call it at once while no union is running.
+     * @param x the element whose set we wish to find
+     * @return the name of the set containing x
+     */
+    public int root(int x) {
+        int parent = x;
+        while (this.array[parent] >= 0) {
+            parent = this.array[parent];
+        }
+        return parent;
+    }
+
     /**
      * Merge two sets if they are not already the same set.
      * @param a an item in the first set to be merged (need not be set name)
@@ -0,0 +1,170 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+/**
+ * Assigns a window of pending pickups to drivers all at once, so that
+ * the total pickup time is as small as possible. The travel time of
+ * every driver to every pickup is computed with one search per pickup,
+ * in parallel, and the assignment is solved with the Hungarian algorithm.
+ */
+public class BatchDispatcher {
+    /** Cost of a driver that cannot reach a pickup. */
+    private static final long UNREACHABLE = Long.MAX_VALUE / 4;
+    /** The shared graph. */
+    private final TaxiGraph graph;
+
+    /**
+     * Constructor for a dispatcher over a graph.
+     * @param g the graph with the map and drivers
+     */
+    public BatchDispatcher(TaxiGraph g) {
+        this.graph = g;
+    }
+
+    /**
+     * Assigns each pickup at most one driver, and each driver at most one
+     * pickup, with the smallest total time. If there are more pickups than
+     * drivers, some pickups are left without a driver.
+     * @param pickups vertices of the pending pickups
+     * @param driverIds ids of the available drivers
+     * @return the assignment
+     */
+    public Result dispatch(int[] pickups, int[] driverIds) {
+        long start = System.nanoTime();
+        int[] driverVertices = new int[driverIds.length];
+        for (int j = 0; j < driverIds.length; j++) {
+            driverVertices[j] = this.graph.getDriverVertex(driverIds[j]);
+        }
+        int[][] times = new int[pickups.length][driverIds.length];
+        IntStream.range(0, pickups.length).parallel().forEach(i ->
+            this.graph.travelTimes(pickups[i], driverVertices, times[i],
+                    this.graph.acquireContext()));
+        long matrixDone = System.nanoTime();
+
+        int[] assigned = hungarian(times);
+        long assignDone = System.nanoTime();
+
+        int[] drivers = new int[pickups.length];
+        int[] pickupTimes = new int[pickups.length];
+        long total = 0;
+        for (int i = 0; i < pickups.length; i++) {
+            int j = assigned[i];
+            if (j < 0 || times[i][j] == Integer.MAX_VALUE) {
+                drivers[i] = -1;
+                pickupTimes[i] = Integer.MAX_VALUE;
+            } else {
+                drivers[i] = driverIds[j];
+                pickupTimes[i] = times[i][j];
+                total += times[i][j];
+            }
+        }
+        return new Result(drivers, pickupTimes, total,
+                matrixDone - start, assignDone - matrixDone);
+    }
+
+    /**
+     * Hungarian algorithm with potentials for a rectangular matrix.
+     * Runs in O(n * n * m) for n rows and m columns with n at most m.
+     * @param times travel time of each column to each row
+     * @return the column assigned to each row, or -1
+     */
+    static int[] hungarian(int[][] times) {
+        int rows = times.length;
+        int cols = rows == 0 ? 0 : times[0].length;
+        boolean transposed = rows > cols;
+        int n = transposed ? cols : rows;
+        int m = transposed ? rows : cols;
+        long[] u = new long[n + 1];
+        long[] v = new long[m + 1];
+        int[] match = new int[m + 1];
+        int[] way = new int[m + 1];
+        long[] minv = new long[m + 1];
+        boolean[] used = new boolean[m + 1];
+        for (int i = 1; i <= n; i++) {
+            match[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Long.MAX_VALUE);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = match[j0];
+                long delta = Long.MAX_VALUE;
+                int j1 = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (!used[j]) {
+                        int t = transposed
+                            ? times[j - 1][i0 - 1] : times[i0 - 1][j - 1];
+                        long cost = t == Integer.MAX_VALUE ? UNREACHABLE : t;
+                        long cur = cost - u[i0] - v[j];
+                        if (cur < minv[j]) {
+                            minv[j] = cur;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[match[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (match[j0] != 0);
+            do {
+                int j1 = way[j0];
+                match[j0] = match[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        int[] assigned = new int[rows];
+        Arrays.fill(assigned, -1);
+        for (int j = 1; j <= m; j++) {
+            if (match[j] != 0) {
+                if (transposed) {
+                    assigned[j - 1] = match[j] - 1;
+                } else {
+                    assigned[match[j] - 1] = j - 1;
+                }
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * The outcome of a dispatch window.
+     */
+    public static class Result {
+        /** Driver id assigned to each pickup, or -1. */
+        public final int[] drivers;
+        /** Time of each pickup's driver, or Integer.MAX_VALUE. */
+        public final int[] times;
+        /** Sum of the times of the assigned pickups. */
+        public final long totalTime;
+        /** Nanoseconds spent computing the travel time matrix. */
+        public final long matrixNanos;
+        /** Nanoseconds spent solving the assignment. */
+        public final long assignNanos;
+
+        /**
+         * Constructor for a result.
+         * @param driverArr driver id of each pickup
+         * @param timeArr time of each pickup
+         * @param total sum of the times
+         * @param matrix nanoseconds spent on the matrix
+         * @param assign nanoseconds spent on the assignment
+         */
+        Result(int[] driverArr, int[] timeArr, long total, long matrix,
+                long assign) {
+            this.drivers = driverArr;
+            this.times = timeArr;
+            this.totalTime = total;
+            this.matrixNanos = matrix;
+            this.assignNanos = assign;
+        }
+    }
+}
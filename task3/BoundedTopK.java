@@ -0,0 +1,157 @@
+/**
+ * Keeps the k entries with the smallest keys out of a stream of int
+ * key and id pairs, without boxing or allocating per entry. Each entry
+ * is packed into one long, key first, so entries order by key and then
+ * by id, and the k best are kept in a max-heap whose root is the worst
+ * of them. After the stream, sort turns the heap into the entries in
+ * increasing order in place, and clear makes it ready for the next one.
+ */
+public class BoundedTopK {
+    /** Heap of the packed entries, 0-based, largest at the root. */
+    private final long[] heap;
+    /** Number of entries in the heap. */
+    private int currentSize;
+    /** Whether the entries have been sorted since the last clear. */
+    private boolean sorted;
+
+    /**
+     * Constructor for a selector of the k smallest entries.
+     * @param k number of entries to keep
+     */
+    public BoundedTopK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.heap = new long[k];
+    }
+
+    /**
+     * Returns the number of entries kept at most.
+     * @return k
+     */
+    public int capacity() {
+        return this.heap.length;
+    }
+
+    /**
+     * Returns the number of entries kept so far.
+     * @return number of entries
+     */
+    public int size() {
+        return this.currentSize;
+    }
+
+    /**
+     * Removes all entries so the selector can be reused.
+     */
+    public void clear() {
+        this.currentSize = 0;
+        this.sorted = false;
+    }
+
+    /**
+     * Offers an entry, which is kept if fewer than k entries are kept or
+     * it is smaller than the worst of them.
+     * @param key the key, not negative
+     * @param id the id, not negative
+     * @return true if the entry was kept
+     */
+    public boolean offer(int key, int id) {
+        if (this.sorted) {
+            throw new IllegalStateException();
+        }
+        long entry = ((long) key << Integer.SIZE) | id;
+        if (this.currentSize < this.heap.length) {
+            this.siftUp(this.currentSize++, entry);
+            return true;
+        }
+        if (this.currentSize == 0 || entry >= this.heap[0]) {
+            return false;
+        }
+        this.siftDown(0, entry, this.currentSize);
+        return true;
+    }
+
+    /**
+     * Largest key an entry may have to still be kept.
+     * @return the worst kept key, or Integer.MAX_VALUE if fewer than k
+     *      entries are kept
+     */
+    public int worstKey() {
+        if (this.currentSize < this.heap.length) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) (this.heap[0] >>> Integer.SIZE);
+    }
+
+    /**
+     * Sorts the kept entries by key, then id, in place. No more entries
+     * can be offered until clear is called.
+     */
+    public void sort() {
+        if (this.sorted) {
+            return;
+        }
+        for (int end = this.currentSize - 1; end > 0; end--) {
+            long max = this.heap[0];
+            this.siftDown(0, this.heap[end], end);
+            this.heap[end] = max;
+        }
+        this.sorted = true;
+    }
+
+    /**
+     * Key of an entry after sort.
+     * @param i the position, 0 being the smallest
+     * @return the key
+     */
+    public int keyAt(int i) {
+        return (int) (this.heap[i] >>> Integer.SIZE);
+    }
+
+    /**
+     * Id of an entry after sort.
+     * @param i the position, 0 being the smallest
+     * @return the id
+     */
+    public int idAt(int i) {
+        return (int) this.heap[i];
+    }
+
+    /**
+     * Moves an entry up from a hole until its parent is larger.
+     * @param start the hole
+     * @param entry the entry being placed
+     */
+    private void siftUp(int start, long entry) {
+        int hole = start;
+        while (hole > 0 && entry > this.heap[(hole - 1) / 2]) {
+            this.heap[hole] = this.heap[(hole - 1) / 2];
+            hole = (hole - 1) / 2;
+        }
+        this.heap[hole] = entry;
+    }
+
+    /**
+     * Moves an entry down from a hole until its children are smaller.
+     * @param start the hole
+     * @param entry the entry being placed
+     * @param size number of heap slots in use
+     */
+    private void siftDown(int start, long entry, int size) {
+        int hole = start;
+        int child;
+        for ( ; hole * 2 + 1 < size; hole = child) {
+            child = hole * 2 + 1;
+            if (child + 1 < size && this.heap[child + 1] > this.heap[child]) {
+                child++;
+            }
+            if (this.heap[child] > entry) {
+                this.heap[hole] = this.heap[child];
+            } else {
+                break;
+            }
+        }
+        this.heap[hole] = entry;
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * Dial's bucket queue for small integer keys. Keys may not go below the
+ * last key removed, which holds for Dijkstra's and for A* with a
+ * consistent estimate. The ring should cover the spread of the keys in
+ * the queue, twice the largest edge weight for A*; if a key falls
+ * outside it, the ring is doubled until it fits.
+ * The buckets are a ring of doubly linked lists through int arrays, so
+ * insert and decreaseKey are constant time and deleteMin only scans
+ * forward over empty buckets.
+ */
+public class BucketQueue implements DistanceQueue {
+    /** First vertex of each bucket, or -1. */
+    private int[] heads;
+    /** Number of buckets minus one, the buckets being a power of two. */
+    private int mask;
+    /** Next vertex in the same bucket, or -1. */
+    private final int[] next;
+    /** Previous vertex in the same bucket, or -1. */
+    private final int[] prev;
+    /** Key of each vertex. */
+    private final int[] keys;
+    /** Whether each vertex is in the queue. */
+    private final boolean[] inQueue;
+    /** Key of the bucket the minimum scan starts at. */
+    private int cursor;
+    /** No smaller than any key linked since the queue was last empty. */
+    private int top;
+    /** Number of vertices in the queue. */
+    private int currentSize;
+
+    /**
+     * Constructor for a queue of the vertices 0 to capacity - 1.
+     * @param capacity number of vertices
+     * @param span expected largest difference between two keys
+     */
+    public BucketQueue(int capacity, int span) {
+        if (capacity < 0 || span < 0) {
+            throw new IllegalArgumentException();
+        }
+        int buckets = Integer.highestOneBit(Math.max(1, span)) * 2;
+        this.heads = new int[buckets];
+        this.mask = buckets - 1;
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.keys = new int[capacity];
+        this.inQueue = new boolean[capacity];
+        for (int i = 0; i < buckets; i++) {
+            this.heads[i] = -1;
+        }
+    }
+
+    /**
+     * Returns the number of vertices in the queue.
+     * @return number of vertices
+     */
+    public int size() {
+        return this.currentSize;
+    }
+
+    /**
+     * Test if the queue is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return this.currentSize == 0;
+    }
+
+    /**
+     * Checks whether a vertex is in the queue.
+     * @param v the vertex number
+     * @return true if v is in the queue
+     */
+    public boolean contains(int v) {
+        return this.inQueue[v];
+    }
+
+    /**
+     * Inserts a vertex that is not already in the queue.
+     * @param v the vertex number
+     * @param key the key of the vertex
+     */
+    public void insert(int v, int key) {
+        if (this.inQueue[v]) {
+            throw new IllegalArgumentException();
+        }
+        if (this.currentSize == 0) {
+            this.cursor = key;
+            this.top = key;
+        } else if (key < this.cursor) {
+            this.cursor = key;
+        }
+        this.inQueue[v] = true;
+        this.currentSize++;
+        this.link(v, key);
+    }
+
+    /**
+     * Lowers the key of a vertex that is in the queue.
+     * @param v the vertex number
+     * @param key the new key, no larger than the current one
+     */
+    public void decreaseKey(int v, int key) {
+        if (!this.inQueue[v] || key > this.keys[v]) {
+            throw new IllegalArgumentException();
+        }
+        this.unlink(v);
+        if (key < this.cursor) {
+            this.cursor = key;
+        }
+        this.link(v, key);
+    }
+
+    /**
+     * Find the vertex with the smallest key.
+     * @return the vertex number
+     */
+    public int findMin() {
+        if (this.isEmpty()) {
+            throw new NullPointerException();
+        }
+        while (this.heads[this.cursor & this.mask] < 0) {
+            this.cursor++;
+        }
+        return this.heads[this.cursor & this.mask];
+    }
+
+    /**
+     * Find the smallest key in the queue.
+     * @return the smallest key
+     */
+    public int findMinKey() {
+        return this.keys[this.findMin()];
+    }
+
+    /**
+     * Removes the vertex with the smallest key.
+     * @return the removed vertex number
+     */
+    public int deleteMin() {
+        int min = this.findMin();
+        this.unlink(min);
+        this.inQueue[min] = false;
+        this.currentSize--;
+        return min;
+    }
+
+    /**
+     * Make the queue logically empty so it can be reused.
+     */
+    public void makeEmpty() {
+        for (int b = 0; b < this.heads.length && this.currentSize > 0; b++) {
+            for (int v = this.heads[b]; v >= 0; v = this.next[v]) {
+                this.inQueue[v] = false;
+                this.currentSize--;
+            }
+            this.heads[b] = -1;
+        }
+        this.currentSize = 0;
+    }
+
+    /**
+     * Adds a vertex to the front of its key's bucket.
+     * @param v the vertex number
+     * @param key the key of the vertex
+     */
+    private void link(int v, int key) {
+        if (key > this.top) {
+            this.top = key;
+        }
+        if (this.top - this.cursor > this.mask) {
+            this.grow(this.top - this.cursor);
+        }
+        int b = key & this.mask;
+        this.keys[v] = key;
+        this.prev[v] = -1;
+        this.next[v] = this.heads[b];
+        if (this.heads[b] >= 0) {
+            this.prev[this.heads[b]] = v;
+        }
+        this.heads[b] = v;
+    }
+
+    /**
+     * Doubles the ring until it covers the given key spread, moving the
+     * queued vertices to their new buckets.
+     * @param spread difference between the top key and the cursor
+     */
+    private void grow(int spread) {
+        int[] old = this.heads;
+        int buckets = old.length;
+        while (buckets - 1 < spread) {
+            buckets *= 2;
+        }
+        this.heads = new int[buckets];
+        this.mask = buckets - 1;
+        for (int i = 0; i < buckets; i++) {
+            this.heads[i] = -1;
+        }
+        for (int b = 0; b < old.length; b++) {
+            int v = old[b];
+            while (v >= 0) {
+                int after = this.next[v];
+                this.link(v, this.keys[v]);
+                v = after;
+            }
+        }
+    }
+
+    /**
+     * Removes a vertex from its bucket.
+     * @param v the vertex number
+     */
+    private void unlink(int v) {
+        if (this.prev[v] >= 0) {
+            this.next[this.prev[v]] = this.next[v];
+        } else {
+            this.heads[this.keys[v] & this.mask] = this.next[v];
+        }
+        if (this.next[v] >= 0) {
+            this.prev[this.next[v]] = this.prev[v];
+        }
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+/**
+ * Writes synthetic city maps and drivers in the input format of Taxi,
+ * for benchmarks on maps larger than the hand-written samples. A grid
+ * city has size by size intersections joined to their four neighbors; a
+ * scale-free city has size * size places added one at a time, each
+ * joined to two earlier places picked with probability proportional to
+ * their degree, so a few hubs get most of the roads. Drivers are spread
+ * uniformly, or clustered around a few hotspots.
+ */
+public final class CityGenerator {
+    /**
+     * Kind of city, grid or scalefree.
+     */
+    private static final int TYPEINDEX = 0;
+    /**
+     * Side of the city; the city has size * size locations.
+     */
+    private static final int SIZEINDEX = 1;
+    /**
+     * Number of drivers.
+     */
+    private static final int DRIVERSINDEX = 2;
+    /**
+     * Driver distribution, uniform or clustered.
+     */
+    private static final int DISTRIBUTIONINDEX = 3;
+    /**
+     * Random seed.
+     */
+    private static final int SEEDINDEX = 4;
+    /**
+     * Prefix of the output file names.
+     */
+    private static final int PREFIXINDEX = 5;
+    /**
+     * Largest travel time of a connection.
+     */
+    private static final int MAX_MINUTES = 9;
+    /**
+     * Roads each new place of a scale-free city gets.
+     */
+    private static final int ATTACHMENTS = 2;
+    /**
+     * Number of hotspots clustered drivers gather around.
+     */
+    private static final int HOTSPOTS = 8;
+    /**
+     * Steps of the random walk from a hotspot to a clustered driver.
+     */
+    private static final int WALK_STEPS = 6;
+    /**
+     * Id of the first driver.
+     */
+    private static final int FIRST_ID = 100;
+    /**
+     * Private constructor.
+     */
+    private CityGenerator() {
+
+    }
+    /**
+     * Writes prefix-loc.txt, prefix-conn.txt and prefix-drv.txt.
+     *
+     * @param args Type, size, drivers, distribution, seed and prefix.
+     */
+    public static void main(String[] args) {
+        String type = args[TYPEINDEX];
+        int size = Integer.parseInt(args[SIZEINDEX]);
+        int driverCount = Integer.parseInt(args[DRIVERSINDEX]);
+        boolean clustered = "clustered".equals(args[DISTRIBUTIONINDEX]);
+        Random random = new Random(Long.parseLong(args[SEEDINDEX]));
+        String prefix = args[PREFIXINDEX];
+
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<int[]> roads = new ArrayList<>();
+        if ("grid".equals(type)) {
+            makeGrid(size, names, roads);
+        } else if ("scalefree".equals(type)) {
+            makeScaleFree(size * size, random, names, roads);
+        } else {
+            System.out.println("Unknown city type " + type + ".");
+            System.exit(0);
+        }
+        ArrayList<ArrayList<Integer>> neighbors = new ArrayList<>();
+        for (int v = 0; v < names.size(); v++) {
+            neighbors.add(new ArrayList<>());
+        }
+        for (int[] road : roads) {
+            neighbors.get(road[0]).add(road[1]);
+            neighbors.get(road[1]).add(road[0]);
+        }
+        int[] hotspots = new int[HOTSPOTS];
+        for (int h = 0; h < HOTSPOTS; h++) {
+            hotspots[h] = random.nextInt(names.size());
+        }
+
+        try (PrintWriter loc = new PrintWriter(prefix + "-loc.txt");
+                PrintWriter conn = new PrintWriter(prefix + "-conn.txt");
+                PrintWriter drv = new PrintWriter(prefix + "-drv.txt")) {
+            for (String name : names) {
+                loc.println(name);
+            }
+            for (int[] road : roads) {
+                conn.println("(" + names.get(road[0]) + ", "
+                        + names.get(road[1]) + ")\t"
+                        + (1 + random.nextInt(MAX_MINUTES)));
+            }
+            for (int d = 0; d < driverCount; d++) {
+                int v;
+                if (clustered) {
+                    v = hotspots[random.nextInt(HOTSPOTS)];
+                    for (int s = 0; s < WALK_STEPS; s++) {
+                        ArrayList<Integer> next = neighbors.get(v);
+                        v = next.get(random.nextInt(next.size()));
+                    }
+                } else {
+                    v = random.nextInt(names.size());
+                }
+                drv.println((FIRST_ID + d) + " " + names.get(v));
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println("Could not write " + prefix + " files.");
+            System.exit(0);
+        }
+        System.out.println(names.size() + " locations, " + roads.size()
+                + " connections, " + driverCount + " drivers.");
+    }
+    /**
+     * Makes a grid city.
+     *
+     * @param size Side of the grid.
+     * @param names Filled with the location names.
+     * @param roads Filled with the connections, as pairs of locations.
+     */
+    private static void makeGrid(int size, ArrayList<String> names,
+            ArrayList<int[]> roads) {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int v = r * size + c;
+                names.add("Street " + r + "-" + c);
+                if (c > 0) {
+                    roads.add(new int[] {v - 1, v});
+                }
+                if (r > 0) {
+                    roads.add(new int[] {v - size, v});
+                }
+            }
+        }
+    }
+    /**
+     * Makes a scale-free city by preferential attachment.
+     *
+     * @param count Number of places.
+     * @param random Source of randomness.
+     * @param names Filled with the location names.
+     * @param roads Filled with the connections, as pairs of locations.
+     */
+    private static void makeScaleFree(int count, Random random,
+            ArrayList<String> names, ArrayList<int[]> roads) {
+        // every road adds both ends here, so a uniform pick from it
+        // picks a place with probability proportional to its degree
+        ArrayList<Integer> ends = new ArrayList<>();
+        for (int v = 0; v < count; v++) {
+            names.add("Place " + v);
+            if (v == 0) {
+                continue;
+            }
+            int first = -1;
+            for (int a = 0; a < ATTACHMENTS && a < v; a++) {
+                int u;
+                do {
+                    u = ends.isEmpty() ? 0 : ends.get(random.nextInt(
+                            ends.size()));
+                } while (u == first);
+                first = u;
+                roads.add(new int[] {u, v});
+            }
+            for (int i = roads.size() - Math.min(ATTACHMENTS, v);
+                    i < roads.size(); i++) {
+                ends.add(roads.get(i)[0]);
+                ends.add(roads.get(i)[1]);
+            }
+        }
+    }
+}
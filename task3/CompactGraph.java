@@ -0,0 +1,124 @@
+/**
+ * A frozen compressed sparse row (CSR) form of an adjacency list.
+ * The edges leaving vertex v are stored in positions offsets[v] up to
+ * offsets[v + 1] of the targets and weights arrays, so an edge costs
+ * two ints instead of an object and a reference. The structure is fixed
+ * once built, but edge weights can be updated in place.
+ */
+public class CompactGraph {
+    /** Start of each vertex's edges, with one extra entry at the end. */
+    private final int[] offsets;
+    /** Endpoint of each directed edge. */
+    private final int[] targets;
+    /** Weight of each directed edge. */
+    private final int[] weights;
+
+    /**
+     * Constructor that takes already built CSR arrays.
+     * @param offsetArr edge start of each vertex, length vertices + 1
+     * @param targetArr endpoint of each edge
+     * @param weightArr weight of each edge
+     */
+    public CompactGraph(int[] offsetArr, int[] targetArr, int[] weightArr) {
+        if (offsetArr.length == 0 || targetArr.length != weightArr.length
+                || offsetArr[offsetArr.length - 1] != targetArr.length) {
+            throw new IllegalArgumentException();
+        }
+        this.offsets = offsetArr;
+        this.targets = targetArr;
+        this.weights = weightArr;
+    }
+
+    /**
+     * Returns the number of vertices.
+     * @return number of vertices
+     */
+    public int vertexCount() {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * Returns the number of directed edges.
+     * @return number of directed edges
+     */
+    public int edgeCount() {
+        return this.targets.length;
+    }
+
+    /**
+     * Index of the first edge leaving v.
+     * @param v the vertex number
+     * @return first edge index of v
+     */
+    public int start(int v) {
+        return this.offsets[v];
+    }
+
+    /**
+     * Index one past the last edge leaving v.
+     * @param v the vertex number
+     * @return end edge index of v
+     */
+    public int end(int v) {
+        return this.offsets[v + 1];
+    }
+
+    /**
+     * Endpoint of an edge.
+     * @param e the edge index
+     * @return vertex number the edge points to
+     */
+    public int target(int e) {
+        return this.targets[e];
+    }
+
+    /**
+     * Weight of an edge.
+     * @param e the edge index
+     * @return weight of the edge
+     */
+    public int weight(int e) {
+        return this.weights[e];
+    }
+
+    /**
+     * Changes the weight of an edge in place.
+     * @param e the edge index
+     * @param w the new weight
+     */
+    public void setWeight(int e, int w) {
+        this.weights[e] = w;
+    }
+
+    /**
+     * Changes the weight of every edge between two vertices, in both
+     * directions.
+     * @param a one vertex
+     * @param b the other vertex
+     * @param w the new weight
+     */
+    public void setWeights(int a, int b, int w) {
+        for (int e = this.offsets[a]; e < this.offsets[a + 1]; e++) {
+            if (this.targets[e] == b) {
+                this.weights[e] = w;
+            }
+        }
+        for (int e = this.offsets[b]; e < this.offsets[b + 1]; e++) {
+            if (this.targets[e] == a) {
+                this.weights[e] = w;
+            }
+        }
+    }
+
+    /**
+     * Largest edge weight in the graph.
+     * @return the largest weight, or 0 if there are no edges
+     */
+    public int maxWeight() {
+        int max = 0;
+        for (int e = 0; e < this.weights.length; e++) {
+            max = Math.max(max, this.weights[e]);
+        }
+        return max;
+    }
+}
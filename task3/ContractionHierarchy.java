@@ -0,0 +1,621 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+/**
+ * A contraction hierarchy over a CompactGraph for fast route queries.
+ * Vertices are contracted one at a time in order of importance, adding a
+ * shortcut between two neighbors of a contracted vertex whenever no other
+ * path, found by a bounded witness search, is as short. A query then only
+ * runs two Dijkstra searches that go upward in the order, one from each
+ * end, and shortcuts are unpacked through the vertex they bypass.
+ */
+public class ContractionHierarchy {
+    /** First int of a hierarchy file. */
+    private static final int MAGIC = 0x54584348;
+    /** Vertices a witness search may settle before giving up. */
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    /** Starting capacity of each vertex's edge list while contracting. */
+    private static final int INITIAL_DEGREE = 4;
+    /** Position of each vertex in the contraction order. */
+    private final int[] rank;
+    /** Start of each vertex's upward edges, plus one extra entry. */
+    private final int[] upOffsets;
+    /** Higher ranked endpoint of each upward edge. */
+    private final int[] upTargets;
+    /** Weight of each upward edge. */
+    private final int[] upWeights;
+    /** Vertex a shortcut bypasses, or -1 for an edge of the map. */
+    private final int[] upMiddle;
+    /** Fingerprint of the graph the hierarchy was built from. */
+    private final long fingerprint;
+    /** Each thread's scratch state for queries. */
+    private final ThreadLocal<Search> searches;
+
+    /**
+     * Constructor that takes already built hierarchy arrays.
+     * @param rankArr contraction order position of each vertex
+     * @param offsetArr upward edge start of each vertex
+     * @param targetArr upward edge endpoints
+     * @param weightArr upward edge weights
+     * @param middleArr bypassed vertex of each upward edge, or -1
+     * @param print fingerprint of the graph
+     */
+    private ContractionHierarchy(int[] rankArr, int[] offsetArr,
+            int[] targetArr, int[] weightArr, int[] middleArr, long print) {
+        this.rank = rankArr;
+        this.upOffsets = offsetArr;
+        this.upTargets = targetArr;
+        this.upWeights = weightArr;
+        this.upMiddle = middleArr;
+        this.fingerprint = print;
+        final int n = rankArr.length;
+        this.searches = ThreadLocal.withInitial(() -> new Search(n));
+    }
+
+    /**
+     * Contracts every vertex of an undirected graph.
+     * @param g the graph
+     * @return the hierarchy
+     */
+    public static ContractionHierarchy build(CompactGraph g) {
+        return new Builder(g).contractAll();
+    }
+
+    /**
+     * Reads a hierarchy written by write.
+     * @param fileName name of the hierarchy file
+     * @param g the graph the hierarchy should belong to
+     * @return the hierarchy, or null if it was built from another graph
+     * @throws IOException if the file cannot be read
+     */
+    public static ContractionHierarchy read(String fileName, CompactGraph g)
+        throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(fileName)))) {
+            if (in.readInt() != MAGIC || in.readInt() != g.vertexCount()
+                    || in.readLong() != fingerprint(g)) {
+                return null;
+            }
+            int n = g.vertexCount();
+            int[] rankArr = readInts(in, n);
+            int[] offsetArr = readInts(in, n + 1);
+            int m = offsetArr[n];
+            return new ContractionHierarchy(rankArr, offsetArr,
+                    readInts(in, m), readInts(in, m), readInts(in, m),
+                    fingerprint(g));
+        }
+    }
+
+    /**
+     * Writes the hierarchy so it can be read back without rebuilding.
+     * @param fileName name of the hierarchy file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(this.rank.length);
+            out.writeLong(this.fingerprint);
+            writeInts(out, this.rank);
+            writeInts(out, this.upOffsets);
+            writeInts(out, this.upTargets);
+            writeInts(out, this.upWeights);
+            writeInts(out, this.upMiddle);
+        }
+    }
+
+    /**
+     * Returns the number of upward edges, including shortcuts.
+     * @return number of upward edges
+     */
+    public int upwardEdgeCount() {
+        return this.upTargets.length;
+    }
+
+    /**
+     * Finds a shortest path between two vertices.
+     * @param s the first vertex of the path
+     * @param t the last vertex of the path
+     * @return the vertices of the path from s to t, or null if unreachable
+     */
+    public int[] route(int s, int t) {
+        Search q = this.searches.get();
+        q.reset();
+        q.forward.reach(s, 0, -1);
+        q.backward.reach(t, 0, -1);
+        int best = Integer.MAX_VALUE;
+        int meet = -1;
+        while (true) {
+            int fMin = q.forward.minKey();
+            int bMin = q.backward.minKey();
+            if (Math.min(fMin, bMin) >= best) {
+                break;
+            }
+            Side side = fMin <= bMin ? q.forward : q.backward;
+            Side other = side == q.forward ? q.backward : q.forward;
+            int v = side.queue.deleteMin();
+            if (other.distances[v] != Integer.MAX_VALUE
+                    && side.distances[v] + other.distances[v] < best) {
+                best = side.distances[v] + other.distances[v];
+                meet = v;
+            }
+            for (int e = this.upOffsets[v]; e < this.upOffsets[v + 1]; e++) {
+                int w = this.upTargets[e];
+                int d = side.distances[v] + this.upWeights[e];
+                if (d < side.distances[w]) {
+                    side.reach(w, d, v);
+                }
+            }
+        }
+        if (meet < 0) {
+            return null;
+        }
+        IntStack path = new IntStack();
+        int[] up = new int[q.forward.touchedCount + 1];
+        int count = 0;
+        for (int v = meet; v != -1; v = q.forward.previous[v]) {
+            up[count++] = v;
+        }
+        path.push(s);
+        for (int i = count - 1; i > 0; i--) {
+            this.unpack(up[i], up[i - 1], path);
+        }
+        for (int v = meet; q.backward.previous[v] != -1;
+                v = q.backward.previous[v]) {
+            this.unpack(v, q.backward.previous[v], path);
+        }
+        return path.toArray();
+    }
+
+    /**
+     * Adds the map vertices of the edge from a to b to the path,
+     * not counting a, which is already on it.
+     * @param a start of the edge
+     * @param b end of the edge
+     * @param path the path so far
+     */
+    private void unpack(int a, int b, IntStack path) {
+        int low = this.rank[a] < this.rank[b] ? a : b;
+        int high = low == a ? b : a;
+        int middle = -1;
+        for (int e = this.upOffsets[low]; e < this.upOffsets[low + 1]; e++) {
+            if (this.upTargets[e] == high) {
+                middle = this.upMiddle[e];
+                break;
+            }
+        }
+        if (middle < 0) {
+            path.push(b);
+        } else {
+            this.unpack(a, middle, path);
+            this.unpack(middle, b, path);
+        }
+    }
+
+    /**
+     * Hashes the structure and weights of a graph.
+     * @param g the graph
+     * @return the fingerprint
+     */
+    static long fingerprint(CompactGraph g) {
+        long h = g.vertexCount() * 31L + g.edgeCount();
+        for (int v = 0; v < g.vertexCount(); v++) {
+            for (int e = g.start(v); e < g.end(v); e++) {
+                h = h * 31 + g.target(e);
+                h = h * 31 + g.weight(e);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Reads count ints.
+     * @param in the stream
+     * @param count number of ints
+     * @return the ints
+     * @throws IOException if the stream cannot be read
+     */
+    private static int[] readInts(DataInputStream in, int count)
+        throws IOException {
+        int[] arr = new int[count];
+        for (int i = 0; i < count; i++) {
+            arr[i] = in.readInt();
+        }
+        return arr;
+    }
+
+    /**
+     * Writes all ints of an array.
+     * @param out the stream
+     * @param arr the ints
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeInts(DataOutputStream out, int[] arr)
+        throws IOException {
+        for (int i = 0; i < arr.length; i++) {
+            out.writeInt(arr[i]);
+        }
+    }
+
+    /**
+     * Growable stack of ints used for paths.
+     */
+    private static class IntStack {
+        /** The ints. */
+        private int[] items = new int[16];
+        /** Number of ints used. */
+        private int size;
+
+        /**
+         * Pushes an int.
+         * @param x the int
+         */
+        void push(int x) {
+            if (this.size == this.items.length) {
+                this.items = Arrays.copyOf(this.items, this.size * 2);
+            }
+            this.items[this.size++] = x;
+        }
+
+        /**
+         * Copies the ints, bottom first.
+         * @return the ints
+         */
+        int[] toArray() {
+            return Arrays.copyOf(this.items, this.size);
+        }
+    }
+
+    /**
+     * One direction of a query: distances, previous vertices and a heap,
+     * reset only where the last query touched them.
+     */
+    private static class Side {
+        /** Distance of each vertex from this side's start. */
+        private final int[] distances;
+        /** Previous vertex on the upward path, or -1. */
+        private final int[] previous;
+        /** Heap of reached vertices. */
+        private final IndexedMinPQ queue;
+        /** Vertices reached by the last query. */
+        private final int[] touched;
+        /** Number of entries used in touched. */
+        private int touchedCount;
+
+        /**
+         * Constructor for a side over n vertices.
+         * @param n number of vertices
+         */
+        Side(int n) {
+            this.distances = new int[n];
+            this.previous = new int[n];
+            this.queue = new IndexedMinPQ(n);
+            this.touched = new int[n];
+            Arrays.fill(this.distances, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Clears what the last query touched.
+         */
+        void reset() {
+            for (int i = 0; i < this.touchedCount; i++) {
+                this.distances[this.touched[i]] = Integer.MAX_VALUE;
+            }
+            this.touchedCount = 0;
+            this.queue.makeEmpty();
+        }
+
+        /**
+         * Records a shorter distance to a vertex.
+         * @param v the vertex
+         * @param d the distance
+         * @param prev the vertex it was reached from, or -1
+         */
+        void reach(int v, int d, int prev) {
+            if (this.distances[v] == Integer.MAX_VALUE) {
+                this.touched[this.touchedCount++] = v;
+                this.queue.insert(v, d);
+            } else if (this.queue.contains(v)) {
+                this.queue.decreaseKey(v, d);
+            } else {
+                return;
+            }
+            this.distances[v] = d;
+            this.previous[v] = prev;
+        }
+
+        /**
+         * Smallest key in the heap.
+         * @return the key, or Integer.MAX_VALUE if the heap is empty
+         */
+        int minKey() {
+            return this.queue.isEmpty()
+                ? Integer.MAX_VALUE : this.queue.findMinKey();
+        }
+    }
+
+    /**
+     * Scratch state of a query: one side for each direction.
+     */
+    private static class Search {
+        /** Search upward from the first vertex. */
+        private final Side forward;
+        /** Search upward from the last vertex. */
+        private final Side backward;
+
+        /**
+         * Constructor for a search over n vertices.
+         * @param n number of vertices
+         */
+        Search(int n) {
+            this.forward = new Side(n);
+            this.backward = new Side(n);
+        }
+
+        /**
+         * Clears both sides.
+         */
+        void reset() {
+            this.forward.reset();
+            this.backward.reset();
+        }
+    }
+
+    /**
+     * Contracts the vertices of a graph and builds the upward edges.
+     */
+    private static class Builder {
+        /** The graph being contracted. */
+        private final CompactGraph graph;
+        /** Number of vertices. */
+        private final int n;
+        /** Neighbors of each vertex, including shortcuts. */
+        private final int[][] adjTarget;
+        /** Weights of each vertex's edges. */
+        private final int[][] adjWeight;
+        /** Bypassed vertex of each vertex's edges, or -1. */
+        private final int[][] adjMiddle;
+        /** Number of edges of each vertex. */
+        private final int[] degree;
+        /** Whether each vertex has been contracted. */
+        private final boolean[] contracted;
+        /** Number of contracted neighbors of each vertex. */
+        private final int[] deletedNeighbors;
+        /** Contraction order position of each vertex. */
+        private final int[] rank;
+        /** Witness search distances. */
+        private final int[] witnessDist;
+        /** Vertices touched by the witness search. */
+        private final int[] witnessTouched;
+        /** Number of entries used in witnessTouched. */
+        private int witnessCount;
+        /** Witness search heap. */
+        private final IndexedMinPQ witnessQueue;
+
+        /**
+         * Constructor that copies the graph into growable edge lists.
+         * @param g the graph
+         */
+        Builder(CompactGraph g) {
+            this.graph = g;
+            this.n = g.vertexCount();
+            this.adjTarget = new int[this.n][];
+            this.adjWeight = new int[this.n][];
+            this.adjMiddle = new int[this.n][];
+            this.degree = new int[this.n];
+            this.contracted = new boolean[this.n];
+            this.deletedNeighbors = new int[this.n];
+            this.rank = new int[this.n];
+            this.witnessDist = new int[this.n];
+            this.witnessTouched = new int[this.n];
+            this.witnessQueue = new IndexedMinPQ(this.n);
+            Arrays.fill(this.witnessDist, Integer.MAX_VALUE);
+            for (int v = 0; v < this.n; v++) {
+                int cap = Math.max(INITIAL_DEGREE, g.end(v) - g.start(v));
+                this.adjTarget[v] = new int[cap];
+                this.adjWeight[v] = new int[cap];
+                this.adjMiddle[v] = new int[cap];
+            }
+            for (int v = 0; v < this.n; v++) {
+                for (int e = g.start(v); e < g.end(v); e++) {
+                    this.addEdge(v, g.target(e), g.weight(e), -1);
+                }
+            }
+        }
+
+        /**
+         * Contracts every vertex, least important first.
+         * @return the hierarchy
+         */
+        ContractionHierarchy contractAll() {
+            IndexedMinPQ order = new IndexedMinPQ(this.n);
+            for (int v = 0; v < this.n; v++) {
+                order.insert(v, this.priority(v));
+            }
+            int next = 0;
+            while (!order.isEmpty()) {
+                int v = order.deleteMin();
+                int p = this.priority(v);
+                if (!order.isEmpty() && p > order.findMinKey()) {
+                    order.insert(v, p);
+                    continue;
+                }
+                this.contract(v, true);
+                this.contracted[v] = true;
+                this.rank[v] = next++;
+                for (int i = 0; i < this.degree[v]; i++) {
+                    this.deletedNeighbors[this.adjTarget[v][i]]++;
+                }
+            }
+            return this.upward();
+        }
+
+        /**
+         * Importance of a vertex: the edge difference of contracting it
+         * plus its number of contracted neighbors.
+         * @param v the vertex
+         * @return the priority, lower is contracted first
+         */
+        private int priority(int v) {
+            int shortcuts = this.contract(v, false);
+            int remaining = 0;
+            for (int i = 0; i < this.degree[v]; i++) {
+                if (!this.contracted[this.adjTarget[v][i]]) {
+                    remaining++;
+                }
+            }
+            return shortcuts - remaining + this.deletedNeighbors[v];
+        }
+
+        /**
+         * Finds the shortcuts needed to contract v.
+         * @param v the vertex
+         * @param add true to add the shortcuts, false to only count them
+         * @return number of shortcuts needed
+         */
+        private int contract(int v, boolean add) {
+            int shortcuts = 0;
+            int maxOut = 0;
+            for (int i = 0; i < this.degree[v]; i++) {
+                if (!this.contracted[this.adjTarget[v][i]]) {
+                    maxOut = Math.max(maxOut, this.adjWeight[v][i]);
+                }
+            }
+            for (int i = 0; i < this.degree[v]; i++) {
+                int u = this.adjTarget[v][i];
+                if (this.contracted[u]) {
+                    continue;
+                }
+                int du = this.adjWeight[v][i];
+                this.witnessSearch(u, v, du + maxOut);
+                for (int j = 0; j < this.degree[v]; j++) {
+                    int w = this.adjTarget[v][j];
+                    if (w <= u || this.contracted[w]) {
+                        continue;
+                    }
+                    int via = du + this.adjWeight[v][j];
+                    if (this.witnessDist[w] > via) {
+                        shortcuts += 2;
+                        if (add) {
+                            this.addEdge(u, w, via, v);
+                            this.addEdge(w, u, via, v);
+                        }
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Dijkstra from u over uncontracted vertices other than v.
+         * @param u the start
+         * @param v the vertex being contracted
+         * @param limit distance after which the search stops
+         */
+        private void witnessSearch(int u, int v, int limit) {
+            for (int i = 0; i < this.witnessCount; i++) {
+                this.witnessDist[this.witnessTouched[i]] = Integer.MAX_VALUE;
+            }
+            this.witnessCount = 0;
+            this.witnessQueue.makeEmpty();
+            this.witnessDist[u] = 0;
+            this.witnessTouched[this.witnessCount++] = u;
+            this.witnessQueue.insert(u, 0);
+            int settled = 0;
+            while (!this.witnessQueue.isEmpty()
+                    && settled < WITNESS_SETTLE_LIMIT) {
+                int x = this.witnessQueue.deleteMin();
+                if (this.witnessDist[x] > limit) {
+                    break;
+                }
+                settled++;
+                for (int i = 0; i < this.degree[x]; i++) {
+                    int y = this.adjTarget[x][i];
+                    if (y == v || this.contracted[y]) {
+                        continue;
+                    }
+                    int d = this.witnessDist[x] + this.adjWeight[x][i];
+                    if (d < this.witnessDist[y]) {
+                        if (this.witnessDist[y] == Integer.MAX_VALUE) {
+                            this.witnessTouched[this.witnessCount++] = y;
+                            this.witnessQueue.insert(y, d);
+                        } else if (this.witnessQueue.contains(y)) {
+                            this.witnessQueue.decreaseKey(y, d);
+                        } else {
+                            continue;
+                        }
+                        this.witnessDist[y] = d;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds an edge, or lowers the weight of an existing one.
+         * @param a start of the edge
+         * @param b end of the edge
+         * @param w weight of the edge
+         * @param middle bypassed vertex, or -1
+         */
+        private void addEdge(int a, int b, int w, int middle) {
+            for (int i = 0; i < this.degree[a]; i++) {
+                if (this.adjTarget[a][i] == b) {
+                    if (w < this.adjWeight[a][i]) {
+                        this.adjWeight[a][i] = w;
+                        this.adjMiddle[a][i] = middle;
+                    }
+                    return;
+                }
+            }
+            if (this.degree[a] == this.adjTarget[a].length) {
+                int cap = this.degree[a] * 2;
+                this.adjTarget[a] = Arrays.copyOf(this.adjTarget[a], cap);
+                this.adjWeight[a] = Arrays.copyOf(this.adjWeight[a], cap);
+                this.adjMiddle[a] = Arrays.copyOf(this.adjMiddle[a], cap);
+            }
+            this.adjTarget[a][this.degree[a]] = b;
+            this.adjWeight[a][this.degree[a]] = w;
+            this.adjMiddle[a][this.degree[a]] = middle;
+            this.degree[a]++;
+        }
+
+        /**
+         * Keeps each vertex's edges to higher ranked vertices.
+         * @return the hierarchy
+         */
+        private ContractionHierarchy upward() {
+            int[] offsets = new int[this.n + 1];
+            for (int v = 0; v < this.n; v++) {
+                int up = 0;
+                for (int i = 0; i < this.degree[v]; i++) {
+                    if (this.rank[this.adjTarget[v][i]] > this.rank[v]) {
+                        up++;
+                    }
+                }
+                offsets[v + 1] = offsets[v] + up;
+            }
+            int[] targets = new int[offsets[this.n]];
+            int[] weights = new int[targets.length];
+            int[] middles = new int[targets.length];
+            for (int v = 0; v < this.n; v++) {
+                int pos = offsets[v];
+                for (int i = 0; i < this.degree[v]; i++) {
+                    if (this.rank[this.adjTarget[v][i]] > this.rank[v]) {
+                        targets[pos] = this.adjTarget[v][i];
+                        weights[pos] = this.adjWeight[v][i];
+                        middles[pos] = this.adjMiddle[v][i];
+                        pos++;
+                    }
+                }
+            }
+            return new ContractionHierarchy(this.rank, offsets, targets,
+                    weights, middles, fingerprint(this.graph));
+        }
+    }
+}
@@ -0,0 +1,350 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+/**
+ * Parallel single source shortest paths by delta-stepping on a
+ * ForkJoinPool. Vertices are kept in buckets of width delta by distance.
+ * The lowest bucket is emptied in rounds that relax the light edges of
+ * all of its vertices in parallel, since those can refill it, and the
+ * heavy edges are relaxed once at the end, since they only reach later
+ * buckets. The distance and previous vertex of each vertex are packed
+ * into one long, updated by compare-and-set, so a shorter distance and,
+ * on equal distances, a smaller previous vertex always win. The
+ * distances are the same as Dijkstra's; the previous vertices form a
+ * shortest path tree that picks the lowest numbered vertex on ties.
+ */
+public class DeltaStepping {
+    /** Frontier vertices a task relaxes without splitting further. */
+    private static final int GRAIN = 256;
+    /** Packed entry of a vertex that has not been reached. */
+    private static final long UNREACHED = Long.MAX_VALUE;
+    /** The graph searched, shared with the caller. */
+    private final CompactGraph graph;
+    /** Bucket width; edges up to this weight are light. */
+    private final int delta;
+    /** Pool the relaxations run on. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor with the bucket width set to the average edge weight.
+     * @param g the graph
+     * @param forkJoin pool the relaxations run on
+     */
+    public DeltaStepping(CompactGraph g, ForkJoinPool forkJoin) {
+        this(g, averageWeight(g), forkJoin);
+    }
+
+    /**
+     * Constructor for a given bucket width.
+     * @param g the graph
+     * @param width bucket width, at least 1
+     * @param forkJoin pool the relaxations run on
+     */
+    public DeltaStepping(CompactGraph g, int width, ForkJoinPool forkJoin) {
+        if (width < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.graph = g;
+        this.delta = width;
+        this.pool = forkJoin;
+    }
+
+    /**
+     * Computes the shortest path tree of a source.
+     * @param source the source vertex
+     * @return distances and previous vertices of every vertex
+     */
+    public ShortestPathTree run(int source) {
+        Run state = new Run(this.graph.vertexCount());
+        state.best.set(source, pack(0, -1));
+        state.addToBucket(source, 0);
+        for (int i = 0; i < state.buckets.size(); i++) {
+            IntList settled = new IntList();
+            IntList frontier = state.takeBucket(i);
+            while (frontier.size > 0) {
+                for (int j = 0; j < frontier.size; j++) {
+                    int v = frontier.items[j];
+                    state.relaxedAt[v] = distance(state.best.get(v));
+                    settled.add(v);
+                }
+                state.relaxAll(frontier, true);
+                frontier = new IntList();
+                for (int j = 0; j < state.improvedCount.get(); j++) {
+                    int u = state.improved[j];
+                    int d = distance(state.best.get(u));
+                    if (d / this.delta == i) {
+                        if (state.relaxedAt[u] != d) {
+                            frontier.add(u);
+                        }
+                    } else {
+                        state.addToBucket(u, d / this.delta);
+                    }
+                }
+            }
+            IntList unique = new IntList();
+            for (int j = 0; j < settled.size; j++) {
+                int v = settled.items[j];
+                if (state.heavyDone[v] != i + 1) {
+                    state.heavyDone[v] = i + 1;
+                    unique.add(v);
+                }
+            }
+            state.relaxAll(unique, false);
+            for (int j = 0; j < state.improvedCount.get(); j++) {
+                int u = state.improved[j];
+                state.addToBucket(u, distance(state.best.get(u)) / this.delta);
+            }
+        }
+        int n = this.graph.vertexCount();
+        int[] distances = new int[n];
+        int[] previous = new int[n];
+        for (int v = 0; v < n; v++) {
+            long entry = state.best.get(v);
+            distances[v] = distance(entry);
+            previous[v] = entry == UNREACHED ? -1 : (int) entry;
+        }
+        return new ShortestPathTree(source, distances, previous);
+    }
+
+    /**
+     * Packs a distance and a previous vertex so that they order by
+     * distance first and by previous vertex second.
+     * @param dist the distance
+     * @param prev the previous vertex, or -1
+     * @return the packed entry
+     */
+    private static long pack(int dist, int prev) {
+        return (long) dist << 32 | (prev & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Distance of a packed entry.
+     * @param entry the packed entry
+     * @return the distance, or Integer.MAX_VALUE if unreached
+     */
+    private static int distance(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /**
+     * Average edge weight of a graph, rounded up.
+     * @param g the graph
+     * @return the average weight, at least 1
+     */
+    private static int averageWeight(CompactGraph g) {
+        long total = 0;
+        for (int e = 0; e < g.edgeCount(); e++) {
+            total += g.weight(e);
+        }
+        int m = Math.max(1, g.edgeCount());
+        return (int) Math.max(1, (total + m - 1) / m);
+    }
+
+    /**
+     * State of one run: the packed entries and the buckets.
+     */
+    private class Run {
+        /** Packed distance and previous vertex of each vertex. */
+        private final AtomicLongArray best;
+        /** Distance each vertex last relaxed its light edges at. */
+        private final int[] relaxedAt;
+        /** Bucket number plus one each vertex last relaxed heavy edges in. */
+        private final int[] heavyDone;
+        /**
+         * Round each vertex was last added to improved in, or minus one
+         * minus the bucket it was last taken from.
+         */
+        private final AtomicIntegerArray mark;
+        /** Vertices improved in the current round, each at most once. */
+        private final int[] improved;
+        /** Number of entries used in improved. */
+        private final AtomicInteger improvedCount;
+        /** Vertices by bucket, possibly stale or repeated. */
+        private final ArrayList<IntList> buckets;
+        /** Number of the current round. */
+        private int round;
+
+        /**
+         * Constructor for a run over n vertices.
+         * @param n number of vertices
+         */
+        Run(int n) {
+            this.best = new AtomicLongArray(n);
+            for (int v = 0; v < n; v++) {
+                this.best.set(v, UNREACHED);
+            }
+            this.relaxedAt = new int[n];
+            Arrays.fill(this.relaxedAt, -1);
+            this.heavyDone = new int[n];
+            this.mark = new AtomicIntegerArray(n);
+            this.improved = new int[n];
+            this.improvedCount = new AtomicInteger();
+            this.buckets = new ArrayList<>();
+        }
+
+        /**
+         * Adds a vertex to a bucket.
+         * @param v the vertex
+         * @param b the bucket number
+         */
+        void addToBucket(int v, int b) {
+            while (this.buckets.size() <= b) {
+                this.buckets.add(null);
+            }
+            if (this.buckets.get(b) == null) {
+                this.buckets.set(b, new IntList());
+            }
+            this.buckets.get(b).add(v);
+        }
+
+        /**
+         * Removes a bucket, keeping only the vertices that are still in
+         * it and have not been relaxed at their current distance.
+         * @param b the bucket number
+         * @return the vertices left
+         */
+        IntList takeBucket(int b) {
+            IntList bucket = this.buckets.get(b);
+            this.buckets.set(b, null);
+            IntList live = new IntList();
+            if (bucket == null) {
+                return live;
+            }
+            for (int j = 0; j < bucket.size; j++) {
+                int v = bucket.items[j];
+                int d = distance(this.best.get(v));
+                if (d / DeltaStepping.this.delta == b && this.relaxedAt[v] != d
+                        && this.mark.get(v) != -b - 1) {
+                    this.mark.set(v, -b - 1);
+                    live.add(v);
+                }
+            }
+            return live;
+        }
+
+        /**
+         * Relaxes the light or heavy edges of some vertices in parallel,
+         * recording the vertices whose entry improved in improved.
+         * @param vertices the vertices
+         * @param light true for light edges, false for heavy ones
+         */
+        void relaxAll(IntList vertices, boolean light) {
+            this.round++;
+            this.improvedCount.set(0);
+            Relax task = new Relax(this, vertices.items, 0, vertices.size,
+                    light);
+            if (vertices.size <= GRAIN) {
+                task.compute();
+            } else {
+                DeltaStepping.this.pool.invoke(task);
+            }
+        }
+
+        /**
+         * Relaxes the light or heavy edges of one vertex.
+         * @param v the vertex
+         * @param light true for light edges, false for heavy ones
+         */
+        void relax(int v, boolean light) {
+            CompactGraph g = DeltaStepping.this.graph;
+            int dist = distance(this.best.get(v));
+            for (int e = g.start(v); e < g.end(v); e++) {
+                int w = g.weight(e);
+                boolean isLight = w <= DeltaStepping.this.delta;
+                if (isLight != light) {
+                    continue;
+                }
+                int u = g.target(e);
+                long entry = pack(dist + w, v);
+                long cur = this.best.get(u);
+                while (entry < cur) {
+                    if (this.best.compareAndSet(u, cur, entry)) {
+                        if (this.mark.getAndSet(u, this.round) != this.round) {
+                            this.improved[this.improvedCount
+                                    .getAndIncrement()] = u;
+                        }
+                        break;
+                    }
+                    cur = this.best.get(u);
+                }
+            }
+        }
+    }
+
+    /**
+     * Relaxes the edges of a range of vertices, splitting the range in
+     * half until it is small enough.
+     */
+    private static class Relax extends RecursiveAction {
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+        /** The run the vertices belong to. */
+        private final Run state;
+        /** The vertices. */
+        private final int[] vertices;
+        /** First position of the range. */
+        private final int lo;
+        /** One past the last position of the range. */
+        private final int hi;
+        /** Whether light or heavy edges are relaxed. */
+        private final boolean light;
+
+        /**
+         * Constructor for a range of vertices.
+         * @param run the run
+         * @param arr the vertices
+         * @param from first position
+         * @param to one past the last position
+         * @param lightEdges true for light edges, false for heavy ones
+         */
+        Relax(Run run, int[] arr, int from, int to, boolean lightEdges) {
+            this.state = run;
+            this.vertices = arr;
+            this.lo = from;
+            this.hi = to;
+            this.light = lightEdges;
+        }
+
+        /**
+         * Relaxes the range, or splits it.
+         */
+        protected void compute() {
+            if (this.hi - this.lo <= GRAIN) {
+                for (int i = this.lo; i < this.hi; i++) {
+                    this.state.relax(this.vertices[i], this.light);
+                }
+            } else {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new Relax(this.state, this.vertices, this.lo, mid,
+                        this.light),
+                        new Relax(this.state, this.vertices, mid, this.hi,
+                        this.light));
+            }
+        }
+    }
+
+    /**
+     * A growable list of ints.
+     */
+    private static class IntList {
+        /** The ints. */
+        private int[] items = new int[16];
+        /** Number of ints used. */
+        private int size;
+
+        /**
+         * Appends an int.
+         * @param x the int
+         */
+        void add(int x) {
+            if (this.size == this.items.length) {
+                this.items = Arrays.copyOf(this.items, this.size * 2);
+            }
+            this.items[this.size++] = x;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * A min-priority queue of vertex numbers keyed by integer distances,
+ * with each vertex in the queue at most once. Searches only use these
+ * operations, so the queue behind them can be swapped.
+ */
+public interface DistanceQueue {
+
+    /**
+     * Returns the number of vertices in the queue.
+     * @return number of vertices
+     */
+    int size();
+
+    /**
+     * Test if the queue is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    boolean isEmpty();
+
+    /**
+     * Checks whether a vertex is in the queue.
+     * @param v the vertex number
+     * @return true if v is in the queue
+     */
+    boolean contains(int v);
+
+    /**
+     * Inserts a vertex that is not already in the queue.
+     * @param v the vertex number
+     * @param key the key of the vertex
+     */
+    void insert(int v, int key);
+
+    /**
+     * Lowers the key of a vertex that is in the queue.
+     * @param v the vertex number
+     * @param key the new key, no larger than the current one
+     */
+    void decreaseKey(int v, int key);
+
+    /**
+     * Find the vertex with the smallest key.
+     * @return the vertex number
+     */
+    int findMin();
+
+    /**
+     * Find the smallest key in the queue.
+     * @return the smallest key
+     */
+    int findMinKey();
+
+    /**
+     * Removes the vertex with the smallest key.
+     * @return the removed vertex number
+     */
+    int deleteMin();
+
+    /**
+     * Make the queue logically empty so it can be reused.
+     */
+    void makeEmpty();
+}
@@ -0,0 +1,201 @@
+import java.util.HashMap;
+import java.util.concurrent.locks.StampedLock;
+/**
+ * The live positions of all drivers, loaded once and kept in int arrays.
+ * Drivers are numbered by their line in the driver file. The drivers at
+ * each vertex form a doubly linked list through the next and prev arrays,
+ * so moving a driver or taking it offline is constant time.
+ * Readers use optimistic reads of a StampedLock and retry if a writer
+ * got in between, so position updates never block pickup searches.
+ */
+public class DriverRegistry {
+    /** Vertex value of a driver that is offline. */
+    public static final int OFFLINE = -1;
+    /** Optimistic attempts before a reader takes the read lock. */
+    private static final int OPTIMISTIC_TRIES = 8;
+    /** Id of each driver. */
+    private final int[] ids;
+    /** Vertex of each driver, or OFFLINE. */
+    private final int[] vertices;
+    /** First driver at each vertex, or -1. */
+    private final int[] head;
+    /** Next driver at the same vertex, or -1. */
+    private final int[] next;
+    /** Previous driver at the same vertex, or -1. */
+    private final int[] prev;
+    /** Maps driver ids to driver numbers. Not changed after loading. */
+    private final HashMap<Integer, Integer> idToDriver;
+    /** Lock that orders position updates against readers. */
+    private final StampedLock lock;
+
+    /**
+     * Constructor that places the given drivers on the map.
+     * @param idArr id of each driver
+     * @param vertexArr vertex of each driver
+     * @param vertexCount number of vertices in the graph
+     */
+    public DriverRegistry(int[] idArr, int[] vertexArr, int vertexCount) {
+        if (idArr.length != vertexArr.length) {
+            throw new IllegalArgumentException();
+        }
+        this.ids = idArr;
+        this.vertices = new int[idArr.length];
+        this.head = new int[vertexCount];
+        this.next = new int[idArr.length];
+        this.prev = new int[idArr.length];
+        this.idToDriver = new HashMap<>();
+        this.lock = new StampedLock();
+        for (int v = 0; v < vertexCount; v++) {
+            this.head[v] = -1;
+        }
+        for (int i = idArr.length - 1; i >= 0; i--) {
+            this.idToDriver.put(idArr[i], i);
+            this.vertices[i] = OFFLINE;
+            this.link(i, vertexArr[i]);
+        }
+    }
+
+    /**
+     * Returns the number of drivers, online or not.
+     * @return number of drivers
+     */
+    public int size() {
+        return this.ids.length;
+    }
+
+    /**
+     * Id of a driver.
+     * @param driver the driver number
+     * @return the driver's id
+     */
+    public int id(int driver) {
+        return this.ids[driver];
+    }
+
+    /**
+     * Finds the driver number of an id.
+     * @param id the driver's id
+     * @return the driver number, or -1 if the id is unknown
+     */
+    public int driverOf(int id) {
+        Integer driver = this.idToDriver.get(id);
+        return driver == null ? -1 : driver;
+    }
+
+    /**
+     * Current vertex of a driver.
+     * @param driver the driver number
+     * @return the vertex the driver is at, or OFFLINE
+     */
+    public int vertex(int driver) {
+        long stamp = this.lock.tryOptimisticRead();
+        int v = this.vertices[driver];
+        if (!this.lock.validate(stamp)) {
+            stamp = this.lock.readLock();
+            try {
+                v = this.vertices[driver];
+            } finally {
+                this.lock.unlockRead(stamp);
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Copies the drivers currently at a vertex into out.
+     * If out is too small nothing useful is copied, and the caller
+     * should retry with an array of at least the returned length.
+     * @param v the vertex number
+     * @param out array to copy the driver numbers into
+     * @return number of drivers at v
+     */
+    public int driversAt(int v, int[] out) {
+        for (int i = 0; i < OPTIMISTIC_TRIES; i++) {
+            long stamp = this.lock.tryOptimisticRead();
+            int count = this.copyDrivers(v, out);
+            if (stamp != 0 && this.lock.validate(stamp)) {
+                return count;
+            }
+        }
+        long stamp = this.lock.readLock();
+        try {
+            return this.copyDrivers(v, out);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Moves a driver to a vertex, or takes it offline.
+     * @param driver the driver number
+     * @param v the new vertex, or OFFLINE
+     */
+    public void move(int driver, int v) {
+        long stamp = this.lock.writeLock();
+        try {
+            this.unlink(driver);
+            this.link(driver, v);
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Walks the list at a vertex. The list may change under an optimistic
+     * reader, so the walk is bounded by the number of drivers.
+     * @param v the vertex number
+     * @param out array to copy the driver numbers into
+     * @return number of drivers walked
+     */
+    private int copyDrivers(int v, int[] out) {
+        int count = 0;
+        for (int d = this.head[v]; d >= 0 && count < this.ids.length;
+                d = this.next[d]) {
+            if (count < out.length) {
+                out[count] = d;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Adds a driver to the front of a vertex's list.
+     * @param driver the driver number
+     * @param v the vertex, or OFFLINE
+     */
+    private void link(int driver, int v) {
+        this.vertices[driver] = v;
+        this.prev[driver] = -1;
+        this.next[driver] = -1;
+        if (v == OFFLINE) {
+            return;
+        }
+        int first = this.head[v];
+        this.next[driver] = first;
+        if (first >= 0) {
+            this.prev[first] = driver;
+        }
+        this.head[v] = driver;
+    }
+
+    /**
+     * Removes a driver from its vertex's list.
+     * @param driver the driver number
+     */
+    private void unlink(int driver) {
+        int v = this.vertices[driver];
+        if (v == OFFLINE) {
+            return;
+        }
+        if (this.prev[driver] >= 0) {
+            this.next[this.prev[driver]] = this.next[driver];
+        } else {
+            this.head[v] = this.next[driver];
+        }
+        if (this.next[driver] >= 0) {
+            this.prev[this.next[driver]] = this.prev[driver];
+        }
+        this.vertices[driver] = OFFLINE;
+    }
+}
@@ -0,0 +1,296 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+/**
+ * A network Voronoi partition of the map by driver: every vertex is
+ * labelled with its closest online driver and the distance to it, found
+ * by one Dijkstra's search from all drivers at once. A label packs the
+ * distance and the driver number into a long, so labels order by
+ * distance and then by driver number, the same tie-break as the driver
+ * searches, and the partition is unique. When a driver moves, only its
+ * old cell is cleared and seeded again from the cells around it, and
+ * the new position is pushed out from where it improves labels; travel
+ * time changes are repaired the same way.
+ * Lookups use optimistic reads of a StampedLock, like DriverRegistry.
+ */
+public class DriverVoronoi {
+    /** Label of a vertex that no online driver can reach. */
+    private static final long NONE = Long.MAX_VALUE;
+    /** The map. */
+    private final CompactGraph graph;
+    /** The drivers, moved through this index while it is in use. */
+    private final DriverRegistry drivers;
+    /** Closest driver and its distance, packed, for each vertex. */
+    private final long[] labels;
+    /** Next vertex toward the closest driver, or -1. */
+    private final int[] previous;
+    /** Queue of vertices whose labels improved, keyed by distance. */
+    private final IndexedMinPQ queue;
+    /** Buffer for the drivers read at one vertex. */
+    private final int[] driverBuffer;
+    /** Lock that orders updates against lookups. */
+    private final StampedLock lock;
+
+    /**
+     * Constructor that labels the map from the drivers' positions.
+     * @param g the map
+     * @param registry the drivers
+     */
+    public DriverVoronoi(CompactGraph g, DriverRegistry registry) {
+        int n = g.vertexCount();
+        this.graph = g;
+        this.drivers = registry;
+        this.labels = new long[n];
+        this.previous = new int[n];
+        this.queue = new IndexedMinPQ(n);
+        this.driverBuffer = new int[registry.size()];
+        this.lock = new StampedLock();
+        Arrays.fill(this.labels, NONE);
+        Arrays.fill(this.previous, -1);
+        for (int d = 0; d < registry.size(); d++) {
+            int v = registry.vertex(d);
+            if (v != DriverRegistry.OFFLINE) {
+                this.offer(v, pack(0, d), -1);
+            }
+        }
+        this.propagate();
+    }
+
+    /**
+     * Driver number of a label.
+     * @param label the label
+     * @return the driver number, or -1 if no driver reaches the vertex
+     */
+    public static int driverOf(long label) {
+        return label == NONE ? -1 : (int) label;
+    }
+
+    /**
+     * Distance of a label.
+     * @param label the label
+     * @return the distance, or Integer.MAX_VALUE if no driver reaches it
+     */
+    public static int distanceOf(long label) {
+        return (int) (label >>> Integer.SIZE);
+    }
+
+    /**
+     * Closest driver of a vertex and its distance.
+     * @param v the vertex number
+     * @return the label, read with driverOf and distanceOf
+     */
+    public long nearest(int v) {
+        long stamp = this.lock.tryOptimisticRead();
+        long label = this.labels[v];
+        if (!this.lock.validate(stamp)) {
+            stamp = this.lock.readLock();
+            try {
+                label = this.labels[v];
+            } finally {
+                this.lock.unlockRead(stamp);
+            }
+        }
+        return label;
+    }
+
+    /**
+     * Route from a driver at a given vertex to a vertex in its cell.
+     * @param v the vertex number
+     * @param driver the driver number
+     * @param from the vertex the driver is expected to be at
+     * @param names location names by vertex number
+     * @return the route, or null if the driver is not closest to v or
+     *     its cell no longer starts at from
+     */
+    public Route route(int v, int driver, int from, List<String> names) {
+        long stamp = this.lock.readLock();
+        try {
+            if (driverOf(this.labels[v]) != driver) {
+                return null;
+            }
+            int count = 1;
+            int root = v;
+            for ( ; this.previous[root] != -1; root = this.previous[root]) {
+                count++;
+            }
+            if (root != from) {
+                return null;
+            }
+            int[] path = new int[count];
+            int[] times = new int[count];
+            int x = v;
+            for (int i = count - 1; i >= 0; i--) {
+                path[i] = x;
+                times[i] = distanceOf(this.labels[x]);
+                x = this.previous[x];
+            }
+            return new Route(names, path, times);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Moves a driver to a vertex, or takes it offline, in the registry
+     * and in the partition.
+     * @param driver the driver number
+     * @param v the new vertex, or DriverRegistry.OFFLINE
+     */
+    public void move(int driver, int v) {
+        long stamp = this.lock.writeLock();
+        try {
+            int old = this.drivers.vertex(driver);
+            this.drivers.move(driver, v);
+            if (old != DriverRegistry.OFFLINE) {
+                this.clearCell(driver, old);
+            }
+            if (v != DriverRegistry.OFFLINE) {
+                this.offer(v, pack(0, driver), -1);
+            }
+            this.propagate();
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Changes the weight of a connection in the map and repairs the
+     * partition: a lower weight is pushed out from the endpoint it brings
+     * closer to a driver, and a higher weight on a path to a driver
+     * clears the vertices beyond it and seeds them again.
+     * @param a one endpoint of the connection
+     * @param b the other endpoint
+     * @param oldWeight weight of the connection before the change
+     * @param newWeight weight of the connection after the change
+     */
+    public void updateWeight(int a, int b, int oldWeight, int newWeight) {
+        long stamp = this.lock.writeLock();
+        try {
+            this.graph.setWeights(a, b, newWeight);
+            long la = this.labels[a];
+            long lb = this.labels[b];
+            if (newWeight < oldWeight) {
+                if (la != NONE) {
+                    this.offer(b, pack(distanceOf(la) + newWeight,
+                            driverOf(la)), a);
+                }
+                if (lb != NONE) {
+                    this.offer(a, pack(distanceOf(lb) + newWeight,
+                            driverOf(lb)), b);
+                }
+            } else if (newWeight > oldWeight) {
+                if (this.previous[b] == a) {
+                    this.clearSubtree(b);
+                } else if (this.previous[a] == b) {
+                    this.clearSubtree(a);
+                }
+            }
+            this.propagate();
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Clears the cell of a driver that left a vertex. The cell is the
+     * subtree of the paths out of that vertex, if the driver owned it.
+     * @param driver the driver number
+     * @param start the vertex the driver left
+     */
+    private void clearCell(int driver, int start) {
+        if (this.labels[start] != NONE
+                && driverOf(this.labels[start]) == driver) {
+            this.clearSubtree(start);
+        }
+    }
+
+    /**
+     * Clears the labels of a vertex and of every vertex whose path to
+     * its driver goes through it, then seeds them from the drivers on
+     * them and the labels around them.
+     * @param root the vertex
+     */
+    private void clearSubtree(int root) {
+        int[] cleared = new int[16];
+        int count = 0;
+        cleared[count++] = root;
+        this.labels[root] = NONE;
+        this.previous[root] = -1;
+        for (int i = 0; i < count; i++) {
+            int x = cleared[i];
+            for (int e = this.graph.start(x); e < this.graph.end(x); e++) {
+                int u = this.graph.target(e);
+                if (this.previous[u] == x && this.labels[u] != NONE) {
+                    if (count == cleared.length) {
+                        cleared = Arrays.copyOf(cleared, count * 2);
+                    }
+                    cleared[count++] = u;
+                    this.labels[u] = NONE;
+                    this.previous[u] = -1;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int x = cleared[i];
+            int here = this.drivers.driversAt(x, this.driverBuffer);
+            for (int p = 0; p < here; p++) {
+                this.offer(x, pack(0, this.driverBuffer[p]), -1);
+            }
+            for (int e = this.graph.start(x); e < this.graph.end(x); e++) {
+                long label = this.labels[this.graph.target(e)];
+                if (label != NONE) {
+                    this.offer(x, pack(distanceOf(label)
+                            + this.graph.weight(e), driverOf(label)),
+                            this.graph.target(e));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives a vertex a label if it is better than its current one.
+     * @param v the vertex number
+     * @param label the new label
+     * @param prev the vertex it came from, or -1
+     */
+    private void offer(int v, long label, int prev) {
+        if (label >= this.labels[v]) {
+            return;
+        }
+        this.labels[v] = label;
+        this.previous[v] = prev;
+        if (this.queue.contains(v)) {
+            this.queue.decreaseKey(v, distanceOf(label));
+        } else {
+            this.queue.insert(v, distanceOf(label));
+        }
+    }
+
+    /**
+     * Pushes improved labels out until no label improves. A vertex can
+     * be queued again if a later one at the same distance gives it a
+     * lower driver number.
+     */
+    private void propagate() {
+        while (!this.queue.isEmpty()) {
+            int x = this.queue.deleteMin();
+            long label = this.labels[x];
+            int dist = distanceOf(label);
+            int driver = driverOf(label);
+            for (int e = this.graph.start(x); e < this.graph.end(x); e++) {
+                this.offer(this.graph.target(e),
+                        pack(dist + this.graph.weight(e), driver), x);
+            }
+        }
+    }
+
+    /**
+     * Packs a distance and a driver number into a label.
+     * @param dist the distance
+     * @param driver the driver number
+     * @return the label
+     */
+    private static long pack(int dist, int driver) {
+        return ((long) dist << Integer.SIZE) | driver;
+    }
+}
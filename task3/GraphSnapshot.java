@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+/**
+ * A binary snapshot of a map: the location names and the CSR arrays.
+ * The file is a header of four ints (magic, version, vertices, edges),
+ * the byte offset of each name in the name table, the length of the
+ * table, the UTF-8 name table padded to a whole int, and then the
+ * offsets, targets and weights arrays. Opening maps the file and copies
+ * the arrays in bulk, so no text has to be parsed.
+ */
+public class GraphSnapshot {
+    /** First int of a snapshot file. */
+    private static final int MAGIC = 0x54584753;
+    /** Version of the file layout. */
+    private static final int VERSION = 1;
+    /** Number of ints in the header. */
+    private static final int HEADER_INTS = 4;
+    /** Names of the locations, by vertex number. */
+    private final ArrayList<String> names;
+    /** The map's connections. */
+    private final CompactGraph graph;
+
+    /**
+     * Constructor that takes the loaded parts of a snapshot.
+     * @param nameList location names by vertex number
+     * @param g the map's connections
+     */
+    private GraphSnapshot(ArrayList<String> nameList, CompactGraph g) {
+        this.names = nameList;
+        this.graph = g;
+    }
+
+    /**
+     * Returns the location names, by vertex number.
+     * @return the names
+     */
+    public ArrayList<String> getNames() {
+        return this.names;
+    }
+
+    /**
+     * Returns the map's connections.
+     * @return the graph
+     */
+    public CompactGraph getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * Writes a snapshot of a map.
+     * @param fileName name of the snapshot file
+     * @param nameList location names by vertex number
+     * @param g the map's connections
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(String fileName, ArrayList<String> nameList,
+            CompactGraph g) throws IOException {
+        int n = g.vertexCount();
+        int m = g.edgeCount();
+        byte[][] encoded = new byte[n][];
+        int[] nameOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            encoded[v] = nameList.get(v).getBytes(StandardCharsets.UTF_8);
+            nameOffsets[v + 1] = nameOffsets[v] + encoded[v].length;
+        }
+        int tableBytes = pad(nameOffsets[n]);
+        long size = (long) Integer.BYTES * (HEADER_INTS + (n + 1) + 1
+                + (n + 1) + 2L * m) + tableBytes;
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+                FileChannel channel = file.getChannel()) {
+            file.setLength(size);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE,
+                    0, size);
+            buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m);
+            for (int v = 0; v <= n; v++) {
+                buf.putInt(nameOffsets[v]);
+            }
+            buf.putInt(tableBytes);
+            for (int v = 0; v < n; v++) {
+                buf.put(encoded[v]);
+            }
+            buf.position(buf.position() + tableBytes - nameOffsets[n]);
+            for (int v = 0; v <= n; v++) {
+                buf.putInt(v < n ? g.start(v) : m);
+            }
+            for (int e = 0; e < m; e++) {
+                buf.putInt(g.target(e));
+            }
+            for (int e = 0; e < m; e++) {
+                buf.putInt(g.weight(e));
+            }
+            buf.force();
+        }
+    }
+
+    /**
+     * Maps a snapshot file and loads it.
+     * @param fileName name of the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static GraphSnapshot open(String fileName) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+                FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                throw new IOException(fileName + " is not a map snapshot");
+            }
+            int n = buf.getInt();
+            int m = buf.getInt();
+            int[] nameOffsets = readInts(buf, n + 1);
+            int tableBytes = buf.getInt();
+            ArrayList<String> nameList = new ArrayList<>(n);
+            int tableStart = buf.position();
+            byte[] table = new byte[nameOffsets[n]];
+            buf.get(table);
+            for (int v = 0; v < n; v++) {
+                nameList.add(new String(table, nameOffsets[v],
+                        nameOffsets[v + 1] - nameOffsets[v],
+                        StandardCharsets.UTF_8));
+            }
+            buf.position(tableStart + tableBytes);
+            int[] offsets = readInts(buf, n + 1);
+            int[] targets = readInts(buf, m);
+            int[] weights = readInts(buf, m);
+            return new GraphSnapshot(nameList,
+                    new CompactGraph(offsets, targets, weights));
+        }
+    }
+
+    /**
+     * Copies count ints from the buffer's position in bulk.
+     * @param buf the mapped file
+     * @param count number of ints
+     * @return the ints
+     */
+    private static int[] readInts(ByteBuffer buf, int count) {
+        int[] arr = new int[count];
+        IntBuffer ints = buf.asIntBuffer();
+        ints.get(arr);
+        buf.position(buf.position() + count * Integer.BYTES);
+        return arr;
+    }
+
+    /**
+     * Rounds a byte count up to a whole number of ints.
+     * @param bytes the byte count
+     * @return the padded count
+     */
+    private static int pad(int bytes) {
+        return (bytes + Integer.BYTES - 1) / Integer.BYTES * Integer.BYTES;
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.Arrays;
+/**
+ * Precomputed distances from a few landmark vertices, used as A* lower
+ * bounds (ALT). By the triangle inequality, for any landmark L the
+ * distance between v and t is at least |d(L, t) - d(L, v)|.
+ * The distances are kept vertex by vertex in one int array, so the
+ * bounds for a vertex are read from one contiguous block.
+ */
+public class Landmarks {
+    /** Marks a vertex that a landmark cannot reach. */
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    /** Landmark vertices. */
+    private final int[] landmarks;
+    /** Distance from landmark i to vertex v at v * count + i. */
+    private final int[] distances;
+
+    /**
+     * Constructor that takes the landmarks and their distances.
+     * @param landmarkArr the landmark vertices
+     * @param distanceArr the distances, vertex by vertex
+     */
+    private Landmarks(int[] landmarkArr, int[] distanceArr) {
+        this.landmarks = landmarkArr;
+        this.distances = distanceArr;
+    }
+
+    /**
+     * Picks landmarks far apart on the map and computes their distances.
+     * The first landmark is the vertex farthest from the vertex with the
+     * most edges, which is taken to be in the main part of the map, and
+     * each next one is the vertex farthest from the landmarks so far.
+     * @param g the graph
+     * @param count number of landmarks
+     * @return the landmarks
+     */
+    public static Landmarks select(CompactGraph g, int count) {
+        int n = g.vertexCount();
+        int[] chosen = new int[count];
+        int[] flat = new int[n * count];
+        int[] dist = new int[n];
+        int[] nearest = new int[n];
+        IndexedMinPQ queue = new IndexedMinPQ(n);
+        int start = 0;
+        for (int v = 1; v < n; v++) {
+            if (g.end(v) - g.start(v) > g.end(start) - g.start(start)) {
+                start = v;
+            }
+        }
+        shortestDistances(g, start, dist, queue);
+        int next = farthest(dist);
+        Arrays.fill(nearest, UNREACHABLE);
+        for (int i = 0; i < count; i++) {
+            chosen[i] = next;
+            shortestDistances(g, next, dist, queue);
+            for (int v = 0; v < n; v++) {
+                flat[v * count + i] = dist[v];
+                if (dist[v] != UNREACHABLE) {
+                    nearest[v] = Math.min(nearest[v], dist[v]);
+                }
+            }
+            next = farthest(nearest);
+        }
+        return new Landmarks(chosen, flat);
+    }
+
+    /**
+     * Returns the number of landmarks.
+     * @return number of landmarks
+     */
+    public int size() {
+        return this.landmarks.length;
+    }
+
+    /**
+     * Returns the landmark vertices.
+     * @return a copy of the landmark vertices
+     */
+    public int[] landmarks() {
+        return this.landmarks.clone();
+    }
+
+    /**
+     * Lower bound on the distance between two vertices.
+     * @param v a vertex
+     * @param t another vertex
+     * @return the largest bound given by any landmark
+     */
+    public int lowerBound(int v, int t) {
+        int count = this.landmarks.length;
+        int vBase = v * count;
+        int tBase = t * count;
+        int best = 0;
+        for (int i = 0; i < count; i++) {
+            int dv = this.distances[vBase + i];
+            int dt = this.distances[tBase + i];
+            if (dv != UNREACHABLE && dt != UNREACHABLE) {
+                best = Math.max(best, Math.abs(dt - dv));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the reachable vertex with the largest distance.
+     * @param dist distances of the vertices
+     * @return the farthest vertex
+     */
+    private static int farthest(int[] dist) {
+        int best = 0;
+        for (int v = 1; v < dist.length; v++) {
+            if (dist[v] != UNREACHABLE
+                    && (dist[best] == UNREACHABLE || dist[v] > dist[best])) {
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Dijkstra's from a source over the whole graph.
+     * @param g the graph
+     * @param source the source vertex
+     * @param dist filled with the distances from the source
+     * @param queue an empty heap over the graph's vertices
+     */
+    private static void shortestDistances(CompactGraph g, int source,
+            int[] dist, IndexedMinPQ queue) {
+        Arrays.fill(dist, UNREACHABLE);
+        boolean[] found = new boolean[dist.length];
+        dist[source] = 0;
+        queue.insert(source, 0);
+        while (!queue.isEmpty()) {
+            int v = queue.deleteMin();
+            found[v] = true;
+            for (int e = g.start(v); e < g.end(v); e++) {
+                int w = g.target(e);
+                int d = dist[v] + g.weight(e);
+                if (!found[w] && d < dist[w]) {
+                    if (dist[w] == UNREACHABLE) {
+                        queue.insert(w, d);
+                    } else {
+                        queue.decreaseKey(w, d);
+                    }
+                    dist[w] = d;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * A lock-free histogram of durations in nanoseconds with one bucket per
+ * power of two, so recording is a leading-zeros count and an atomic
+ * increment. Percentiles are reported as the upper bound of the bucket
+ * they fall in, which is within a factor of two of the real value.
+ */
+public class LatencyHistogram {
+    /** Number of buckets, one per bit of a long. */
+    private static final int BUCKETS = Long.SIZE;
+    /** Number of durations in each bucket. */
+    private final AtomicLongArray counts;
+    /** Sum of the durations. */
+    private final LongAdder total;
+    /** Longest duration. */
+    private final LongAccumulator max;
+
+    /**
+     * Constructor for an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.total = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Records a duration.
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long d = Math.max(0, nanos);
+        this.counts.incrementAndGet(BUCKETS - 1
+                - Long.numberOfLeadingZeros(d | 1));
+        this.total.add(d);
+        this.max.accumulate(d);
+    }
+
+    /**
+     * Returns the number of durations recorded.
+     * @return the count
+     */
+    public long count() {
+        long n = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            n += this.counts.get(b);
+        }
+        return n;
+    }
+
+    /**
+     * Returns the mean duration.
+     * @return the mean in nanoseconds, or 0 if none were recorded
+     */
+    public long mean() {
+        long n = this.count();
+        return n == 0 ? 0 : this.total.sum() / n;
+    }
+
+    /**
+     * Returns the longest duration.
+     * @return the maximum in nanoseconds
+     */
+    public long max() {
+        return this.max.get();
+    }
+
+    /**
+     * Estimates a percentile of the durations.
+     * @param p the percentile, from 0 to 100
+     * @return upper bound in nanoseconds of the bucket holding it
+     */
+    public long percentile(double p) {
+        long n = this.count();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(p / 100 * n);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += this.counts.get(b);
+            if (seen >= rank && seen > 0) {
+                return Math.min(this.max(), b == BUCKETS - 1
+                        ? Long.MAX_VALUE : (1L << (b + 1)) - 1);
+            }
+        }
+        return this.max();
+    }
+
+    /**
+     * Forgets every recorded duration.
+     */
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            this.counts.set(b, 0);
+        }
+        this.total.reset();
+        this.max.reset();
+    }
+}
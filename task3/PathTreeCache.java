@@ -0,0 +1,158 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+/**
+ * A least recently used cache of shortest path trees keyed by source.
+ * The cache is bounded by the bytes its trees use, not by their number.
+ * Every invalidation starts a new generation, and a tree computed in an
+ * older generation is not added, so a search that raced with a weight
+ * change cannot put a stale tree back.
+ */
+public class PathTreeCache {
+    /** Trees by source, least recently used first. */
+    private final LinkedHashMap<Integer, ShortestPathTree> trees;
+    /** Most bytes the trees may use. */
+    private final long maxBytes;
+    /** Bytes used by the cached trees. */
+    private long usedBytes;
+    /** Generation of the cached trees. */
+    private long generation;
+    /** Number of lookups that found a tree. */
+    private long hits;
+    /** Number of lookups that did not. */
+    private long misses;
+    /** Number of trees evicted to stay under maxBytes. */
+    private long evictions;
+
+    /**
+     * Constructor for a cache bounded by a number of bytes.
+     * @param bytes most bytes the trees may use
+     */
+    public PathTreeCache(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.trees = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxBytes = bytes;
+    }
+
+    /**
+     * Looks up the tree of a source and marks it recently used.
+     * @param source the source vertex
+     * @return the tree, or null if it is not cached
+     */
+    public synchronized ShortestPathTree get(int source) {
+        ShortestPathTree tree = this.trees.get(source);
+        if (tree == null) {
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+        return tree;
+    }
+
+    /**
+     * Returns the current generation, to be passed to put with a tree
+     * computed from here on.
+     * @return the generation
+     */
+    public synchronized long generation() {
+        return this.generation;
+    }
+
+    /**
+     * Adds a tree, evicting the least recently used trees if needed.
+     * @param tree the tree
+     * @param gen the generation read before the tree was computed
+     */
+    public synchronized void put(ShortestPathTree tree, long gen) {
+        if (gen != this.generation || tree.bytes() > this.maxBytes) {
+            return;
+        }
+        ShortestPathTree old = this.trees.put(tree.getSource(), tree);
+        if (old != null) {
+            this.usedBytes -= old.bytes();
+        }
+        this.usedBytes += tree.bytes();
+        Iterator<Map.Entry<Integer, ShortestPathTree>> it = 
+                this.trees.entrySet().iterator();
+        while (this.usedBytes > this.maxBytes && it.hasNext()) {
+            this.usedBytes -= it.next().getValue().bytes();
+            it.remove();
+            this.evictions++;
+        }
+    }
+
+    /**
+     * Drops every tree, for example after edge weights changed.
+     */
+    public synchronized void invalidateAll() {
+        this.trees.clear();
+        this.usedBytes = 0;
+        this.generation++;
+    }
+
+    /**
+     * Repairs every tree after the weight of the connection between a
+     * and b changed, and starts a new generation so that trees computed
+     * with the old weight are not added.
+     * @param g the graph, already holding the new weight
+     * @param a one endpoint of the connection
+     * @param b the other endpoint
+     * @param oldWeight weight before the change
+     * @param newWeight weight after the change
+     */
+    public synchronized void repairAll(CompactGraph g, int a, int b,
+            int oldWeight, int newWeight) {
+        this.generation++;
+        if (this.trees.isEmpty()) {
+            return;
+        }
+        DistanceQueue queue = new IndexedMinPQ(g.vertexCount());
+        for (Map.Entry<Integer, ShortestPathTree> entry 
+                : this.trees.entrySet()) {
+            entry.setValue(entry.getValue().repair(g, a, b, oldWeight,
+                    newWeight, queue));
+        }
+    }
+
+    /**
+     * Returns the number of cached trees.
+     * @return number of trees
+     */
+    public synchronized int size() {
+        return this.trees.size();
+    }
+
+    /**
+     * Returns the bytes used by the cached trees.
+     * @return size in bytes
+     */
+    public synchronized long usedBytes() {
+        return this.usedBytes;
+    }
+
+    /**
+     * Returns the number of lookups that found a tree.
+     * @return number of hits
+     */
+    public synchronized long hits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a tree.
+     * @return number of misses
+     */
+    public synchronized long misses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of trees evicted to stay within the budget.
+     * @return number of evictions
+     */
+    public synchronized long evictions() {
+        return this.evictions;
+    }
+}
@@ -0,0 +1,345 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+/**
+ * Scratch state for one pickup query against a shared TaxiGraph.
+ * A context is used by one thread at a time; the graph hands each
+ * thread its own context so many pickups can be answered at once.
+ * Only the vertices a search touched are reset between queries.
+ */
+public class QueryContext {
+    /** Final distances of the shortest paths from the source. */
+    final int[] distances;
+    /** Previous vertex on the shortest path from the source, or -1. */
+    final int[] previous;
+    /** Whether each vertex has been settled by the search. */
+    final boolean[] found;
+    /** Queue of the vertices that are reached but not settled. */
+    final DistanceQueue queue;
+    /** Closest drivers found by the last query. */
+    final ArrayList<TaxiGraph.Driver> closestDrivers;
+    /** Buffer for the driver numbers read at one vertex. */
+    final int[] driverBuffer;
+    /** Vertex each candidate driver was met at, by driver number. */
+    private final int[] candidateVertices;
+    /** Drivers met by the search, packed as distance and driver number. */
+    private long[] candidates;
+    /** Number of entries used in candidates. */
+    private int candidateCount;
+    /** Selector of the closest drivers, reused between queries. */
+    private BoundedTopK topDrivers;
+    /** Vertices whose entries have to be reset before the next query. */
+    private int[] touched;
+    /** Number of entries used in touched. */
+    private int touchedCount;
+    /** Number of vertices settled by the last search. */
+    private int settledCount;
+    /** Number of edges relaxed by the last search. */
+    private long relaxedCount;
+    /** Queue inserts, decreaseKeys and deleteMins of the last search. */
+    private long queueOps;
+    /** Largest number of vertices queued at once by the last search. */
+    private int queuePeak;
+    /** Whether the last query was answered by the driver index. */
+    private boolean indexed;
+    /** Cached tree that answered the last query, or null. */
+    private ShortestPathTree tree;
+    /** Second context for the other half of two-sided searches. */
+    private QueryContext partner;
+    /** Source of the last search, or -1 if none has run. */
+    private int source;
+
+    /** Largest key spread of a bucket queue, or 0 for a binary heap. */
+    private final int bucketSpan;
+
+    /**
+     * Constructor for a context over a graph with the given sizes.
+     * @param vertices number of vertices in the graph
+     * @param drivers number of drivers in the registry
+     * @param span key spread of the bucket queue, or 0 for a binary heap
+     */
+    QueryContext(int vertices, int drivers, int span) {
+        this.bucketSpan = span;
+        this.distances = new int[vertices];
+        this.previous = new int[vertices];
+        this.found = new boolean[vertices];
+        if (span > 0) {
+            this.queue = new BucketQueue(vertices, span);
+        } else {
+            this.queue = new IndexedMinPQ(vertices);
+        }
+        this.closestDrivers = new ArrayList<>();
+        this.touched = new int[vertices];
+        this.touchedCount = 0;
+        this.driverBuffer = new int[drivers];
+        this.candidateVertices = new int[drivers];
+        this.candidates = new long[16];
+        this.candidateCount = 0;
+        this.source = -1;
+        for (int i = 0; i < vertices; i++) {
+            this.distances[i] = Integer.MAX_VALUE;
+            this.previous[i] = -1;
+        }
+    }
+
+    /**
+     * Clears the state left by the last query and starts a new one.
+     * @param location source vertex of the new search
+     */
+    void reset(int location) {
+        for (int i = 0; i < this.touchedCount; i++) {
+            int v = this.touched[i];
+            this.distances[v] = Integer.MAX_VALUE;
+            this.previous[v] = -1;
+            this.found[v] = false;
+        }
+        this.touchedCount = 0;
+        this.queue.makeEmpty();
+        this.closestDrivers.clear();
+        this.candidateCount = 0;
+        this.settledCount = 0;
+        this.relaxedCount = 0;
+        this.queueOps = 0;
+        this.queuePeak = 0;
+        this.tree = null;
+        this.indexed = false;
+        this.source = location;
+    }
+
+    /**
+     * Records a new tentative distance for a vertex.
+     * @param v the vertex number
+     * @param distance the new distance
+     * @param prev the vertex it was reached from, or -1
+     */
+    void reach(int v, int distance, int prev) {
+        this.reach(v, distance, prev, distance);
+    }
+
+    /**
+     * Records a new tentative distance for a vertex, with a heap key
+     * that may add a lower bound on the rest of the path.
+     * @param v the vertex number
+     * @param distance the new distance
+     * @param prev the vertex it was reached from, or -1
+     * @param key the heap key of the vertex
+     */
+    void reach(int v, int distance, int prev, int key) {
+        if (this.distances[v] == Integer.MAX_VALUE) {
+            this.touched[this.touchedCount++] = v;
+            this.queue.insert(v, key);
+            this.queuePeak = Math.max(this.queuePeak, this.queue.size());
+        } else {
+            this.queue.decreaseKey(v, key);
+        }
+        this.queueOps++;
+        this.distances[v] = distance;
+        this.previous[v] = prev;
+    }
+
+    /**
+     * Records a driver met by the search.
+     * @param distance distance from the source to the driver
+     * @param driver the driver number
+     * @param v the vertex the driver was met at
+     */
+    void addCandidate(int distance, int driver, int v) {
+        this.candidateVertices[driver] = v;
+        if (this.candidateCount == this.candidates.length) {
+            this.candidates = Arrays.copyOf(this.candidates,
+                    this.candidateCount * 2);
+        }
+        this.candidates[this.candidateCount++] = 
+                ((long) distance << Integer.SIZE) | driver;
+    }
+
+    /**
+     * Returns the number of drivers met by the search.
+     * @return number of candidates
+     */
+    int candidateCount() {
+        return this.candidateCount;
+    }
+
+    /**
+     * Records the vertex a driver was read at, for candidateVertex,
+     * without adding the driver as a candidate.
+     * @param driver the driver number
+     * @param v the vertex number
+     */
+    void setCandidateVertex(int driver, int v) {
+        this.candidateVertices[driver] = v;
+    }
+
+    /**
+     * Returns the context's cleared selector of the k closest drivers.
+     * @param k number of drivers to keep
+     * @return the selector
+     */
+    BoundedTopK topDrivers(int k) {
+        if (this.topDrivers == null || this.topDrivers.capacity() != k) {
+            this.topDrivers = new BoundedTopK(k);
+        }
+        this.topDrivers.clear();
+        return this.topDrivers;
+    }
+
+    /**
+     * Sorts the candidates by distance, then by driver number.
+     */
+    void sortCandidates() {
+        Arrays.sort(this.candidates, 0, this.candidateCount);
+    }
+
+    /**
+     * Driver number of a candidate.
+     * @param i the candidate position
+     * @return the driver number
+     */
+    int candidateAt(int i) {
+        return (int) this.candidates[i];
+    }
+
+    /**
+     * Vertex a candidate driver was met at by the last search.
+     * @param driver the driver number
+     * @return the vertex number
+     */
+    int candidateVertex(int driver) {
+        return this.candidateVertices[driver];
+    }
+
+    /**
+     * Gets the context used for the backward half of a bidirectional
+     * search, creating it on first use.
+     * @return the partner context
+     */
+    QueryContext partner() {
+        if (this.partner == null) {
+            this.partner = new QueryContext(this.distances.length,
+                    this.driverBuffer.length, this.bucketSpan);
+        }
+        return this.partner;
+    }
+
+    /**
+     * Marks a vertex as settled.
+     * @param v the vertex number
+     */
+    void settle(int v) {
+        this.found[v] = true;
+        this.settledCount++;
+        this.queueOps++;
+    }
+
+    /**
+     * Adds the work of a partner search to the counts.
+     * @param other the partner context
+     */
+    void addWork(QueryContext other) {
+        this.settledCount += other.settledCount;
+        this.relaxedCount += other.relaxedCount;
+        this.queueOps += other.queueOps;
+        this.queuePeak = Math.max(this.queuePeak, other.queuePeak);
+    }
+
+    /**
+     * Counts edges relaxed by the search.
+     * @param count number of edges
+     */
+    void addRelaxed(int count) {
+        this.relaxedCount += count;
+    }
+
+    /**
+     * Returns the number of edges the last search relaxed.
+     * @return number of relaxed edges
+     */
+    public long getRelaxedCount() {
+        return this.relaxedCount;
+    }
+
+    /**
+     * Returns the number of queue operations of the last search.
+     * @return inserts, decreaseKeys and deleteMins
+     */
+    public long getQueueOps() {
+        return this.queueOps;
+    }
+
+    /**
+     * Returns the most vertices the last search had queued at once.
+     * @return the peak queue size
+     */
+    public int getQueuePeak() {
+        return this.queuePeak;
+    }
+
+    /**
+     * Returns the number of vertices the last search settled.
+     * @return number of settled vertices
+     */
+    public int getSettledCount() {
+        return this.settledCount;
+    }
+
+    /**
+     * Marks the current query as answered by the driver index, so its
+     * routes come from the index instead of the search arrays.
+     */
+    void useDriverIndex() {
+        this.indexed = true;
+    }
+
+    /**
+     * Whether the last query was answered by the driver index.
+     * @return true if it was
+     */
+    boolean usesDriverIndex() {
+        return this.indexed;
+    }
+
+    /**
+     * Answers the current query from a cached tree instead of the
+     * search arrays.
+     * @param cached the tree of the query's source
+     */
+    void useTree(ShortestPathTree cached) {
+        this.tree = cached;
+    }
+
+    /**
+     * Distance to a vertex, from the cached tree if there is one.
+     * @param v the vertex number
+     * @return the distance, or Integer.MAX_VALUE if it was not reached
+     */
+    int pathDistance(int v) {
+        return this.tree == null ? this.distances[v] : this.tree.distance(v);
+    }
+
+    /**
+     * Previous vertex on the path, from the cached tree if there is one.
+     * @param v the vertex number
+     * @return the previous vertex, or -1
+     */
+    int pathPrevious(int v) {
+        return this.tree == null ? this.previous[v] : this.tree.previous(v);
+    }
+
+    /**
+     * Returns the source of the last search.
+     * @return source vertex, or -1 if no search has run
+     */
+    public int getSource() {
+        return this.source;
+    }
+
+    /**
+     * Returns the distance found from the source to a vertex by the last
+     * search, or by the cached tree it used.
+     * @param v the vertex number
+     * @return distance, or Integer.MAX_VALUE if it was not reached
+     */
+    public int getDistance(int v) {
+        return this.pathDistance(v);
+    }
+}
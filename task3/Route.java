@@ -0,0 +1,85 @@
+import java.util.List;
+/**
+ * A route from a driver to a pickup, kept as the vertex numbers along it
+ * and the time from the driver to each of them. The text form used by
+ * getPath is only built the first time the route is printed.
+ */
+public class Route {
+    /** Location names by vertex number, shared with the graph. */
+    private final List<String> names;
+    /** Vertices of the route, from the driver to the pickup. */
+    private final int[] vertices;
+    /** Minutes from the driver to each vertex of the route. */
+    private final int[] times;
+    /** Text form of the route, built when first needed. */
+    private String text;
+
+    /**
+     * Constructor for a route.
+     * @param nameList location names by vertex number
+     * @param vertexArr vertices from the driver to the pickup
+     * @param timeArr minutes from the driver to each vertex
+     */
+    Route(List<String> nameList, int[] vertexArr, int[] timeArr) {
+        if (vertexArr.length == 0 || vertexArr.length != timeArr.length) {
+            throw new IllegalArgumentException();
+        }
+        this.names = nameList;
+        this.vertices = vertexArr;
+        this.times = timeArr;
+    }
+
+    /**
+     * Returns the number of vertices on the route.
+     * @return number of vertices
+     */
+    public int length() {
+        return this.vertices.length;
+    }
+
+    /**
+     * Vertex at a position of the route.
+     * @param i the position, 0 being the driver
+     * @return the vertex number
+     */
+    public int vertex(int i) {
+        return this.vertices[i];
+    }
+
+    /**
+     * Minutes from the driver to a position of the route.
+     * @param i the position, 0 being the driver
+     * @return the time in minutes
+     */
+    public int timeAt(int i) {
+        return this.times[i];
+    }
+
+    /**
+     * Minutes from the driver to the pickup.
+     * @return the total time in minutes
+     */
+    public int totalTime() {
+        return this.times[this.times.length - 1];
+    }
+
+    /**
+     * Lists the route's streets and its total time, as getPath does.
+     * @return the route as text
+     */
+    @Override
+    public String toString() {
+        if (this.text == null) {
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i + 1 < this.vertices.length; i++) {
+                out.append("\t(").append(this.names.get(this.vertices[i]))
+                    .append(", ").append(this.names.get(this.vertices[i + 1]))
+                    .append(")\n");
+            }
+            out.append("Expected total time: ").append(this.totalTime())
+                .append(" minutes\n");
+            this.text = out.toString();
+        }
+        return this.text;
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.Arrays;
+/**
+ * An immutable shortest path tree from one source: the distance and the
+ * previous vertex of every vertex, as int arrays indexed by vertex.
+ */
+public class ShortestPathTree {
+    /** Rough size of the object and array headers, in bytes. */
+    private static final int OVERHEAD_BYTES = 64;
+    /** Source of the tree. */
+    private final int source;
+    /** Distance of each vertex from the source. */
+    private final int[] distances;
+    /** Previous vertex on the path from the source, or -1. */
+    private final int[] previous;
+
+    /**
+     * Constructor that takes the arrays of a finished search.
+     * @param src the source vertex
+     * @param distanceArr distance of each vertex, Integer.MAX_VALUE if 
+     *      unreached
+     * @param previousArr previous vertex of each vertex, or -1
+     */
+    public ShortestPathTree(int src, int[] distanceArr, int[] previousArr) {
+        if (distanceArr.length != previousArr.length) {
+            throw new IllegalArgumentException();
+        }
+        this.source = src;
+        this.distances = distanceArr;
+        this.previous = previousArr;
+    }
+
+    /**
+     * Returns the source of the tree.
+     * @return the source vertex
+     */
+    public int getSource() {
+        return this.source;
+    }
+
+    /**
+     * Distance from the source to a vertex.
+     * @param v the vertex number
+     * @return the distance, or Integer.MAX_VALUE if unreachable
+     */
+    public int distance(int v) {
+        return this.distances[v];
+    }
+
+    /**
+     * Previous vertex on the path from the source to a vertex.
+     * @param v the vertex number
+     * @return the previous vertex, or -1
+     */
+    public int previous(int v) {
+        return this.previous[v];
+    }
+
+    /**
+     * Approximate memory used by the tree.
+     * @return size in bytes
+     */
+    public long bytes() {
+        return OVERHEAD_BYTES + 2L * Integer.BYTES * this.distances.length;
+    }
+
+    /**
+     * Repairs the tree after the weight of the connection between a and
+     * b changed in both directions. A lower weight is pushed out from the
+     * endpoint it brings closer; a higher weight on a tree edge resets the
+     * subtree below it, which is seeded again from its neighbours outside.
+     * Either way only vertices whose distance changes are searched. The
+     * tree is immutable, so a repaired copy is returned, or this tree if
+     * the change does not affect it.
+     * @param g the graph, already holding the new weight
+     * @param a one endpoint of the connection
+     * @param b the other endpoint
+     * @param oldWeight weight of the connection before the change
+     * @param newWeight weight of the connection after the change
+     * @param queue an empty queue over the graph's vertices
+     * @return the repaired tree
+     */
+    public ShortestPathTree repair(CompactGraph g, int a, int b,
+            int oldWeight, int newWeight, DistanceQueue queue) {
+        int da = this.distances[a];
+        int db = this.distances[b];
+        if (newWeight < oldWeight) {
+            boolean toB = da != Integer.MAX_VALUE && da + newWeight < db;
+            boolean toA = db != Integer.MAX_VALUE && db + newWeight < da;
+            if (!toA && !toB) {
+                return this;
+            }
+            int[] dist = this.distances.clone();
+            int[] prev = this.previous.clone();
+            if (toB) {
+                dist[b] = da + newWeight;
+                prev[b] = a;
+                queue.insert(b, dist[b]);
+            } else {
+                dist[a] = db + newWeight;
+                prev[a] = b;
+                queue.insert(a, dist[a]);
+            }
+            propagate(g, dist, prev, queue);
+            return new ShortestPathTree(this.source, dist, prev);
+        }
+        int child;
+        if (this.previous[b] == a && da != Integer.MAX_VALUE
+                && db == da + oldWeight) {
+            child = b;
+        } else if (this.previous[a] == b && db != Integer.MAX_VALUE
+                && da == db + oldWeight) {
+            child = a;
+        } else {
+            return this;
+        }
+        int[] dist = this.distances.clone();
+        int[] prev = this.previous.clone();
+        int[] subtree = new int[16];
+        int count = 0;
+        subtree[count++] = child;
+        dist[child] = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            int x = subtree[i];
+            for (int e = g.start(x); e < g.end(x); e++) {
+                int y = g.target(e);
+                if (prev[y] == x && dist[y] != Integer.MAX_VALUE) {
+                    if (count == subtree.length) {
+                        subtree = Arrays.copyOf(subtree, count * 2);
+                    }
+                    subtree[count++] = y;
+                    dist[y] = Integer.MAX_VALUE;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            prev[subtree[i]] = -1;
+        }
+        for (int i = 0; i < count; i++) {
+            int v = subtree[i];
+            for (int e = g.start(v); e < g.end(v); e++) {
+                int u = g.target(e);
+                if (dist[u] != Integer.MAX_VALUE
+                        && dist[u] + g.weight(e) < dist[v]) {
+                    dist[v] = dist[u] + g.weight(e);
+                    prev[v] = u;
+                }
+            }
+            if (dist[v] != Integer.MAX_VALUE) {
+                queue.insert(v, dist[v]);
+            }
+        }
+        propagate(g, dist, prev, queue);
+        return new ShortestPathTree(this.source, dist, prev);
+    }
+
+    /**
+     * Runs Dijkstra's from the queued vertices, only following edges
+     * that shorten a distance, until the queue is empty.
+     * @param g the graph
+     * @param dist distances, updated in place
+     * @param prev previous vertices, updated in place
+     * @param queue the seeded queue
+     */
+    private static void propagate(CompactGraph g, int[] dist, int[] prev,
+            DistanceQueue queue) {
+        while (!queue.isEmpty()) {
+            int v = queue.deleteMin();
+            for (int e = g.start(v); e < g.end(v); e++) {
+                int u = g.target(e);
+                int d = dist[v] + g.weight(e);
+                if (d < dist[u]) {
+                    dist[u] = d;
+                    prev[u] = v;
+                    if (queue.contains(u)) {
+                        queue.decreaseKey(u, d);
+                    } else {
+                        queue.insert(u, d);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Scanner;
+/**
+ * Runs a batch dispatch: assigns a window of pickups to drivers so that
+ * the total pickup time is as small as possible.
+ */
+public final class TaxiBatch {
+    /**
+     * File name of file with map locations.
+     */
+    private static final int MAPLOCATIONSINDEX = 0;
+    /**
+     * File name of file with map connections.
+     */
+    private static final int MAPCONNECTIONSINDEX = 1;
+    /**
+     * File name of file with driver ids and locations.
+     */
+    private static final int DRIVERLOCATIONSINDEX = 2;
+    /**
+     * File name of file with one pickup location per line.
+     */
+    private static final int PICKUPSINDEX = 3;
+    /**
+     * Nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+    /**
+     * Private constructor.
+     */
+    private TaxiBatch() {
+
+    }
+    /**
+     * The main class for the program.
+     * 
+     * @param args The input file names.
+     */
+    public static void main(String[] args) {
+        TaxiGraph uber = new TaxiGraph(1, args[MAPLOCATIONSINDEX],
+                args[MAPCONNECTIONSINDEX], args[DRIVERLOCATIONSINDEX]);
+        int[] pickups = new int[16];
+        int count = 0;
+        try {
+            Scanner in = new Scanner(new File(args[PICKUPSINDEX]));
+            while (in.hasNextLine()) {
+                String loc = in.nextLine().trim();
+                if (loc.isEmpty()) {
+                    continue;
+                }
+                if (count == pickups.length) {
+                    pickups = Arrays.copyOf(pickups, count * 2);
+                }
+                pickups[count++] = uber.getLocationNumber(loc);
+            }
+            in.close();
+        } catch (FileNotFoundException e) {
+            System.out.println("Invalid file name.");
+            System.exit(0);
+        }
+        pickups = Arrays.copyOf(pickups, count);
+
+        int[] driverIds = uber.getOnlineDriverIds();
+        BatchDispatcher.Result result = 
+                new BatchDispatcher(uber).dispatch(pickups, driverIds);
+        for (int i = 0; i < pickups.length; i++) {
+            System.out.print(uber.getLocationName(pickups[i]) + ": ");
+            if (result.drivers[i] < 0) {
+                System.out.println("no driver");
+            } else {
+                System.out.println("driver " + result.drivers[i] + ", "
+                        + result.times[i] + " minutes");
+            }
+        }
+        System.out.println();
+        System.out.println(pickups.length + " pickups, " + driverIds.length 
+                + " drivers, total time " + result.totalTime + " minutes");
+        System.out.printf("Travel times: %.1f ms, assignment: %.1f ms%n",
+                result.matrixNanos / NANOS_PER_MILLI,
+                result.assignNanos / NANOS_PER_MILLI);
+    }
+}
@@ -0,0 +1,162 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+/**
+ * Benchmarks the dispatch path of TaxiGraph: loading the map, a full
+ * dijkstra search, the nearest driver search and getPath. Each
+ * benchmark runs a warmup round so the JIT compiles the code first and
+ * then a measured round over the same random pickups, and reports the
+ * mean, median and 99th percentile time per operation.
+ */
+public final class TaxiBench {
+    /**
+     * File name of file with map locations.
+     */
+    private static final int MAPLOCATIONSINDEX = 0;
+    /**
+     * File name of file with map connections.
+     */
+    private static final int MAPCONNECTIONSINDEX = 1;
+    /**
+     * File name of file with driver ids and locations.
+     */
+    private static final int DRIVERLOCATIONSINDEX = 2;
+    /**
+     * Optional number of operations per round.
+     */
+    private static final int OPERATIONSINDEX = 3;
+    /**
+     * Operations per round if not given.
+     */
+    private static final int DEFAULT_OPERATIONS = 1000;
+    /**
+     * Times the map is loaded in each round of the load benchmark.
+     */
+    private static final int LOADS = 3;
+    /**
+     * Number of drivers the searches look for.
+     */
+    private static final int K = 5;
+    /**
+     * Nanoseconds in a microsecond.
+     */
+    private static final double NANOS_PER_MICRO = 1e3;
+    /**
+     * Fraction of operations faster than the reported tail time.
+     */
+    private static final double P99 = 0.99;
+    /**
+     * Results folded together so the JIT cannot drop the work.
+     */
+    private static long sink;
+    /**
+     * Private constructor.
+     */
+    private TaxiBench() {
+
+    }
+    /**
+     * One benchmarked operation.
+     */
+    private interface Operation {
+        /**
+         * Runs the operation once.
+         *
+         * @param i Number of the run, to pick its input.
+         * @return A value depending on the result.
+         */
+        long run(int i);
+    }
+    /**
+     * The main method for the benchmarks.
+     *
+     * @param args The input file names and the operations per round.
+     */
+    public static void main(String[] args) {
+        String loc = args[MAPLOCATIONSINDEX];
+        String conn = args[MAPCONNECTIONSINDEX];
+        String drv = args[DRIVERLOCATIONSINDEX];
+        int ops = args.length > OPERATIONSINDEX
+            ? Integer.parseInt(args[OPERATIONSINDEX]) : DEFAULT_OPERATIONS;
+        PrintStream out = System.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+        System.setOut(quiet);
+        TaxiGraph graph = new TaxiGraph(K, loc, conn, drv);
+        System.setOut(out);
+        int n = graph.getLocationCount();
+        Random random = new Random(1);
+        int[] pickups = new int[ops];
+        for (int i = 0; i < ops; i++) {
+            pickups[i] = random.nextInt(n);
+        }
+        QueryContext ctx = graph.acquireContext();
+        int[] driverIds = graph.getOnlineDriverIds();
+        int[] targets = new int[driverIds.length];
+        for (int j = 0; j < driverIds.length; j++) {
+            targets[j] = graph.getDriverVertex(driverIds[j]);
+        }
+        int[] times = new int[targets.length];
+
+        out.println(n + " locations, " + driverIds.length + " drivers, "
+                + ops + " operations per round");
+        out.println();
+        out.printf("%-24s %10s %10s %10s%n", "benchmark", "mean us",
+                "p50 us", "p99 us");
+        bench(out, "load", LOADS, i -> {
+            System.setOut(quiet);
+            TaxiGraph g = new TaxiGraph(K, loc, conn, drv);
+            System.setOut(out);
+            g.close();
+            return g.getOnlineDriverIds().length;
+        });
+        bench(out, "dijkstra", ops, i -> {
+            graph.travelTimes(pickups[i], targets, times, ctx);
+            return times.length == 0 ? 0 : times[0];
+        });
+        bench(out, "getNearestDrivers", ops, i ->
+            graph.nearestDrivers(pickups[i], ctx).size());
+        graph.setEarlyTermination(false);
+        bench(out, "getNearestDrivers full", ops, i ->
+            graph.nearestDrivers(pickups[i], ctx).size());
+        graph.setEarlyTermination(true);
+        bench(out, "getPath", ops, i -> {
+            List<TaxiGraph.Driver> found = graph.nearestDrivers(pickups[i],
+                    ctx);
+            return found.isEmpty() ? 0
+                : graph.getPath(found.get(0).driverID, ctx).length();
+        });
+        out.println();
+        out.println("(" + sink + ")");
+    }
+    /**
+     * Runs an operation for a warmup round and a measured round, and
+     * prints the measured times.
+     *
+     * @param out Where to print.
+     * @param name Name of the benchmark.
+     * @param ops Operations per round.
+     * @param op The operation.
+     */
+    private static void bench(PrintStream out, String name, int ops,
+            Operation op) {
+        for (int i = 0; i < ops; i++) {
+            sink += op.run(i);
+        }
+        long[] times = new long[ops];
+        long total = 0;
+        for (int i = 0; i < ops; i++) {
+            long start = System.nanoTime();
+            sink += op.run(i);
+            times[i] = System.nanoTime() - start;
+            total += times[i];
+        }
+        Arrays.sort(times);
+        out.printf("%-24s %10.1f %10.1f %10.1f%n", name,
+                total / (double) ops / NANOS_PER_MICRO,
+                times[ops / 2] / NANOS_PER_MICRO,
+                times[(int) (ops * P99)] / NANOS_PER_MICRO);
+    }
+}
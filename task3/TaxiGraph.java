@@ -1,8 +1,14 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import javax.management.ObjectName;
 /**
  * Graph builder for HW6 Task 3.
  *
@@ -11,11 +17,7 @@ public class TaxiGraph {
     /**
      * This will get the k nearest drivers.
      */
-    private int k;
-    /**
-     * Name of the file with the driver ids and locations.
-     */
-    private String driverFile;
+    private final int k;
     /**
      * Maps the vertex numbers of this graph to a location name.
      */
@@ -26,37 +28,57 @@ public class TaxiGraph {
     private HashMap<String, Integer> roadToNum;
     /**
      * Adjacency list of the vertices, map locations, in this graph.
+     * Only used while loading, then frozen into graph.
      */
     private ArrayList<ArrayList<Endpoint>> adjList;
-    /** 
-     * MinPQ for the Dijkstra implementation.
-     * Key is the distance, value is the vertex/road number.
-     **/
-    private MinPQ<Integer, Integer> distancePQ;
     /**
-     * Hash map used for implementation of Dijkstra's algorithm.
-     * 
-     **/
-    private HashMap<String, Integer> heapPositionMap;
+     * Compressed sparse row form of the adjacency list used by searches.
+     */
+    private CompactGraph graph;
+    /**
+     * Live positions of the drivers, indexed by the vertex they are at.
+     */
+    private DriverRegistry drivers;
     /**
-     * Array that holds the path from the requested 
-     * location to all the vertices in this graph.
-     **/
-    private int[] previous;
+     * Whether driver searches stop once the k closest drivers are settled.
+     */
+    private boolean earlyTermination;
+    /**
+     * Contraction hierarchy for route queries, or null if not prepared.
+     */
+    private volatile ContractionHierarchy hierarchy;
     /**
-     * Array that holds the final distances of the 
-     * shortest paths from the requested location.
+     * Landmark distances for A* route queries, or null if not prepared.
      */
-    private int[] distances;
+    private volatile Landmarks landmarks;
     /**
-     *  Used to find the k drivers that are closest to the requested location.
-     *  Key is the distance, value is the Driver.
-     **/
-    private MaxPQ<Integer, Driver> kDrivers;
+     * Algorithm used by getRoute.
+     */
+    private volatile RouteAlgorithm routeAlgorithm;
+    /**
+     * Cache of shortest path trees of frequent pickups, or null if off.
+     */
+    private PathTreeCache treeCache;
     /**
-     * Holds the k closest drivers to the requested location.
+     * Queue used by the searches.
      */
-    private ArrayList<Driver> closestDrivers;
+    private QueueType queueType;
+    /**
+     * Each thread's scratch state for queries against this graph.
+     */
+    private ThreadLocal<QueryContext> contexts;
+    /**
+     * Context of the interactive query used by the single-request methods.
+     */
+    private QueryContext lastQuery;
+    /**
+     * Voronoi index of the closest driver of every vertex, or null if off.
+     */
+    private volatile DriverVoronoi driverIndex;
+    /**
+     * Query metrics, registered with JMX while they are in use.
+     */
+    private final TaxiMetrics metrics;
 
     /**
      * Creates a graph with the given data.
@@ -68,11 +90,126 @@ public class TaxiGraph {
      */
     public TaxiGraph(int kin, String mapLocFile, String mapConnFile, 
             String driverLocFile) {
+        this(kin, mapLocFile, mapConnFile, driverLocFile, 
+                QueueType.BINARY_HEAP);
+    }
+    /**
+     * Creates a graph with the given data and search queue.
+     *
+     * @param kin Number of nearest drivers to get.
+     * @param mapLocFile Name of the file with the map locations.
+     * @param mapConnFile Name of the file with the map connections.
+     * @param driverLocFile Name of the file with the driver ids and locations.
+     * @param queue Queue used by the searches.
+     */
+    public TaxiGraph(int kin, String mapLocFile, String mapConnFile, 
+            String driverLocFile, QueueType queue) {
+        long start = System.nanoTime();
         this.k = kin;
+        this.queueType = queue;
         this.makeMapLocationMap(mapLocFile);
         this.makeAdjacencyList(mapConnFile);
-        this.distancePQ = new MinPQ<>();        
-        this.driverFile = driverLocFile;
+        this.freezeAdjacencyList();
+        this.makeDriverRegistry(driverLocFile);
+        this.makeContexts();
+        this.earlyTermination = true;
+        this.routeAlgorithm = RouteAlgorithm.DIJKSTRA;
+        this.metrics = new TaxiMetrics();
+        this.metrics.recordLoad(System.nanoTime() - start);
+        if (this.metrics.isEnabled()) {
+            this.metrics.register();
+        }
+    }
+    /**
+     * Creates a graph from a map snapshot.
+     *
+     * @param kin Number of nearest drivers to get.
+     * @param snapshot The loaded map snapshot.
+     * @param driverLocFile Name of the file with the driver ids and locations.
+     * @param queue Queue used by the searches.
+     * @param start When loading started, from System.nanoTime.
+     */
+    private TaxiGraph(int kin, GraphSnapshot snapshot, String driverLocFile,
+            QueueType queue, long start) {
+        this.k = kin;
+        this.queueType = queue;
+        this.numToRoad = snapshot.getNames();
+        this.roadToNum = new HashMap<>(this.numToRoad.size() * 2);
+        for (int i = 0; i < this.numToRoad.size(); i++) {
+            this.roadToNum.put(this.numToRoad.get(i), i);
+        }
+        this.graph = snapshot.getGraph();
+        this.makeDriverRegistry(driverLocFile);
+        this.makeContexts();
+        this.earlyTermination = true;
+        this.routeAlgorithm = RouteAlgorithm.DIJKSTRA;
+        this.metrics = new TaxiMetrics();
+        this.metrics.recordLoad(System.nanoTime() - start);
+        if (this.metrics.isEnabled()) {
+            this.metrics.register();
+        }
+    }
+    /**
+     * Creates a graph from a snapshot written by writeSnapshot, which
+     * is much faster than parsing the map text files.
+     *
+     * @param kin Number of nearest drivers to get.
+     * @param snapshotFile Name of the snapshot file.
+     * @param driverLocFile Name of the file with the driver ids and locations.
+     * @return The graph.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    public static TaxiGraph fromSnapshot(int kin, String snapshotFile,
+            String driverLocFile) throws IOException {
+        return fromSnapshot(kin, snapshotFile, driverLocFile, 
+                QueueType.BINARY_HEAP);
+    }
+    /**
+     * Creates a graph from a snapshot, with the given search queue.
+     *
+     * @param kin Number of nearest drivers to get.
+     * @param snapshotFile Name of the snapshot file.
+     * @param driverLocFile Name of the file with the driver ids and locations.
+     * @param queue Queue used by the searches.
+     * @return The graph.
+     * @throws IOException If the snapshot cannot be read.
+     */
+    public static TaxiGraph fromSnapshot(int kin, String snapshotFile,
+            String driverLocFile, QueueType queue) throws IOException {
+        long start = System.nanoTime();
+        return new TaxiGraph(kin, GraphSnapshot.open(snapshotFile), 
+                driverLocFile, queue, start);
+    }
+    /**
+     * Writes the map of this graph as a binary snapshot.
+     *
+     * @param snapshotFile Name of the snapshot file.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void writeSnapshot(String snapshotFile) throws IOException {
+        GraphSnapshot.write(snapshotFile, this.numToRoad, this.graph);
+    }
+    /**
+     * Creates the per-thread query contexts.
+     */
+    private void makeContexts() {
+        this.contexts = ThreadLocal.withInitial(this::newContext);
+    }
+    /**
+     * Creates a query context with the graph's search queue. A bucket
+     * queue spans twice the largest edge weight, which also covers the
+     * keys of A* with landmark bounds; the queue grows if a travel
+     * time update raises a weight beyond that.
+     * 
+     * @return The new context.
+     */
+    private QueryContext newContext() {
+        int span = 0;
+        if (this.queueType == QueueType.BUCKET) {
+            span = 2 * this.graph.maxWeight() + 1;
+        }
+        return new QueryContext(this.numToRoad.size(), this.drivers.size(),
+                span);
     }
     /**
      * Adds all of the map locations to roadToNum and numToRoad.
@@ -151,54 +288,546 @@ public class TaxiGraph {
 
     }
     /**
-     * Gets the vertex number of the given location.
-     * 
-     * @param location Name of the location.
-     * @return  Vertex number of the location.
+     * Converts the adjacency list into the compact graph and drops it.
      */
-    private int getVertexNumber(String location) {
-        return this.roadToNum.get(location);
+    private void freezeAdjacencyList() {
+        int[] offsets = new int[this.adjList.size() + 1];
+        for (int i = 0; i < this.adjList.size(); i++) {
+            offsets[i + 1] = offsets[i] + this.adjList.get(i).size();
+        }
+        int[] targets = new int[offsets[this.adjList.size()]];
+        int[] weights = new int[targets.length];
+        for (int i = 0; i < this.adjList.size(); i++) {
+            ArrayList<Endpoint> temp = this.adjList.get(i);
+            for (int j = 0; j < temp.size(); j++) {
+                targets[offsets[i] + j] = temp.get(j).endpoint;
+                weights[offsets[i] + j] = temp.get(j).weight;
+            }
+        }
+        this.graph = new CompactGraph(offsets, targets, weights);
+        this.adjList = null;
     }
     /**
-     * Gets the k drivers closest to the location given.
+     * Reads the driver file once and places the drivers in the registry.
      * 
-     * @param location The location given.
+     * @param driverLocFile File with the driver ids and locations.
      */
-    public void getNearestDrivers(int location) {
-        this.dijkstra(location);
-        this.kDrivers = new MaxPQ<>(this.k);
-        this.closestDrivers = new ArrayList<>();
+    private void makeDriverRegistry(String driverLocFile) {
         try {
             System.out.println("Collecting driver locations from " 
-                    + this.driverFile + "...");
+                    + driverLocFile + "...");
+            int[] ids = new int[16];
+            int[] vertices = new int[16];
             int counter = 0;
-            Scanner in = new Scanner(new File(this.driverFile));
+            Scanner in = new Scanner(new File(driverLocFile));
             while (in.hasNextLine()) {
-                int driverID = in.nextInt();
-                String driverLoc = in.nextLine().trim();
-                Driver curr = new Driver(driverID, driverLoc);
-                int pos = this.roadToNum.get(driverLoc);
-                int driverDistance = this.distances[pos];
-                //add to heap
-                if (this.kDrivers.size() < this.k) {
-                    this.kDrivers.insert(driverDistance, curr);
-                } else if (driverDistance < this.kDrivers.findMaxKey()) {
-                    this.kDrivers.deleteMax();
-                    this.kDrivers.insert(driverDistance, curr);
+                if (counter == ids.length) {
+                    ids = Arrays.copyOf(ids, counter * 2);
+                    vertices = Arrays.copyOf(vertices, counter * 2);
                 }
-                counter++;        
-            }
-
-            for (int i = 1; i <= this.k; i++) {
-                this.closestDrivers.add(this.kDrivers.getValueAt(i));
+                ids[counter] = in.nextInt();
+                vertices[counter] = this.getVertexNumber(in.nextLine().trim());
+                counter++;
             }
+            this.drivers = new DriverRegistry(Arrays.copyOf(ids, counter),
+                    Arrays.copyOf(vertices, counter), this.numToRoad.size());
             System.out.println(counter + " drivers input.");
             System.out.println();
             in.close();
         } catch (FileNotFoundException e) {
             System.out.println("Invalid file name.");
             System.exit(0);
-        }    
+        }
+    }
+    /**
+     * Moves a driver to a new location. Safe to call while
+     * other threads are searching for drivers.
+     * 
+     * @param drID Id of the driver.
+     * @param location Name of the driver's new location.
+     */
+    public void moveDriver(int drID, String location) {
+        this.placeDriver(this.getDriverNumber(drID), 
+                this.getLocationNumber(location));
+    }
+    /**
+     * Takes a driver off the map until it is moved again.
+     * 
+     * @param drID Id of the driver.
+     */
+    public void setDriverOffline(int drID) {
+        this.placeDriver(this.getDriverNumber(drID), DriverRegistry.OFFLINE);
+    }
+    /**
+     * Moves a driver in the registry, through the driver index if it
+     * is on so that the index is updated too.
+     * 
+     * @param driver The driver number.
+     * @param location The new vertex, or DriverRegistry.OFFLINE.
+     */
+    private void placeDriver(int driver, int location) {
+        DriverVoronoi index = this.driverIndex;
+        if (index == null) {
+            this.drivers.move(driver, location);
+        } else {
+            index.move(driver, location);
+        }
+    }
+    /**
+     * Builds a Voronoi index of the closest driver of every location and
+     * keeps it up to date as drivers move. With k = 1, driver queries
+     * then look the answer up instead of searching, and getPath follows
+     * the index back to the driver. Should be called before drivers
+     * start moving from other threads.
+     */
+    public void enableDriverIndex() {
+        this.driverIndex = new DriverVoronoi(this.graph, this.drivers);
+    }
+    /**
+     * Changes the travel time of a connection, in both directions, for
+     * live traffic. The weights are changed in place and cached shortest
+     * path trees are repaired rather than dropped. The contraction
+     * hierarchy no longer matches the map and is dropped, as are the
+     * landmarks if the time went down, since their bounds may then be
+     * too high; route queries fall back to Dijkstra's in those cases.
+     * The driver index, if on, is repaired like the cached trees.
+     * Updates are applied one at a time; a search running during an
+     * update may see either time for the connection.
+     *
+     * @param loc1 One end of the connection.
+     * @param loc2 The other end.
+     * @param minutes The new travel time.
+     */
+    public synchronized void updateTravelTime(String loc1, String loc2,
+            int minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException("Negative travel time");
+        }
+        int a = this.getLocationNumber(loc1);
+        int b = this.getLocationNumber(loc2);
+        int old = this.edgeWeight(a, b);
+        if (old == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("No connection between "
+                    + loc1 + " and " + loc2);
+        }
+        if (minutes == old) {
+            return;
+        }
+        DriverVoronoi index = this.driverIndex;
+        if (index == null) {
+            this.graph.setWeights(a, b, minutes);
+        } else {
+            index.updateWeight(a, b, old, minutes);
+        }
+        if (this.treeCache != null) {
+            this.treeCache.repairAll(this.graph, a, b, old, minutes);
+        }
+        this.hierarchy = null;
+        if (this.routeAlgorithm == RouteAlgorithm.CONTRACTION_HIERARCHY) {
+            this.routeAlgorithm = RouteAlgorithm.DIJKSTRA;
+        }
+        if (minutes < old) {
+            this.landmarks = null;
+            if (this.routeAlgorithm == RouteAlgorithm.ALT) {
+                this.routeAlgorithm = RouteAlgorithm.DIJKSTRA;
+            }
+        }
+    }
+    /**
+     * Gets the current vertex of a driver.
+     * 
+     * @param drID Id of the driver.
+     * @return The driver's vertex, or DriverRegistry.OFFLINE.
+     */
+    public int getDriverVertex(int drID) {
+        return this.drivers.vertex(this.getDriverNumber(drID));
+    }
+    /**
+     * Gets the vertex number of a location name.
+     * 
+     * @param location Name of the location.
+     * @return Vertex number of the location.
+     */
+    public int getLocationNumber(String location) {
+        Integer num = this.roadToNum.get(location);
+        if (num == null) {
+            throw new IllegalArgumentException("Unknown location " + location);
+        }
+        return num;
+    }
+    /**
+     * Gets the number of locations on the map.
+     * 
+     * @return Number of locations.
+     */
+    public int getLocationCount() {
+        return this.numToRoad.size();
+    }
+    /**
+     * Gets the name of a location.
+     * 
+     * @param location Vertex number of the location.
+     * @return Name of the location.
+     */
+    public String getLocationName(int location) {
+        return this.numToRoad.get(location);
+    }
+    /**
+     * Gets the ids of the drivers that are not offline.
+     * 
+     * @return The driver ids, in driver file order.
+     */
+    public int[] getOnlineDriverIds() {
+        int[] ids = new int[this.drivers.size()];
+        int count = 0;
+        for (int driver = 0; driver < this.drivers.size(); driver++) {
+            if (this.drivers.vertex(driver) != DriverRegistry.OFFLINE) {
+                ids[count++] = this.drivers.id(driver);
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+    /**
+     * Gets the driver number of the given driver id.
+     * 
+     * @param drID Id of the driver.
+     * @return Driver number in the registry.
+     */
+    private int getDriverNumber(int drID) {
+        int driver = this.drivers.driverOf(drID);
+        if (driver < 0) {
+            throw new IllegalArgumentException("Unknown driver " + drID);
+        }
+        return driver;
+    }
+    /**
+     * Chooses whether driver searches stop as soon as the k closest
+     * drivers are settled, or run over the whole map first.
+     * 
+     * @param early True to stop the search early.
+     */
+    public void setEarlyTermination(boolean early) {
+        this.earlyTermination = early;
+    }
+    /**
+     * Gets the vertex number of the given location.
+     * 
+     * @param location Name of the location.
+     * @return  Vertex number of the location.
+     */
+    private int getVertexNumber(String location) {
+        return this.roadToNum.get(location);
+    }
+    /**
+     * Gets this thread's query context, creating it on first use.
+     * The context stays valid until this thread runs its next query.
+     * 
+     * @return The query context of the calling thread.
+     */
+    public QueryContext acquireContext() {
+        return this.contexts.get();
+    }
+    /**
+     * Gets the k drivers closest to the location given.
+     * 
+     * @param location The location given.
+     */
+    public void getNearestDrivers(int location) {
+        if (this.lastQuery == null) {
+            this.lastQuery = this.newContext();
+        }
+        this.runDriverSearch(location, this.lastQuery);
+    }
+    /**
+     * Finds the k drivers closest to the location given. Safe to call
+     * from many threads at once as long as each uses its own context.
+     * 
+     * @param location The location given.
+     * @param ctx The query context to hold the search state and drivers.
+     * @return The closest drivers.
+     */
+    public List<Driver> nearestDrivers(int location, QueryContext ctx) {
+        this.runDriverSearch(location, ctx);
+        return Collections.unmodifiableList(
+                new ArrayList<>(ctx.closestDrivers));
+    }
+    /**
+     * Runs the driver search chosen by the graph's settings. With the
+     * tree cache on, searches use whole trees so hotspots can share them.
+     * 
+     * @param location The location given.
+     * @param ctx The query context.
+     */
+    private void runDriverSearch(int location, QueryContext ctx) {
+        if (this.k == 1 && this.driverIndex != null) {
+            this.findNearestDriverIndexed(location, ctx);
+        } else if (this.earlyTermination && this.treeCache == null) {
+            this.findNearestDriversEarly(location, ctx);
+        } else {
+            this.findNearestDrivers(location, ctx);
+        }
+    }
+    /**
+     * Looks up the closest driver in the driver index and saves it in
+     * the context.
+     * 
+     * @param location The location given.
+     * @param ctx The query context.
+     */
+    private void findNearestDriverIndexed(int location, QueryContext ctx) {
+        boolean measure = this.metrics.isEnabled();
+        long start = measure ? System.nanoTime() : 0;
+        ctx.reset(location);
+        ctx.useDriverIndex();
+        long label = this.driverIndex.nearest(location);
+        int driver = DriverVoronoi.driverOf(label);
+        if (driver >= 0) {
+            int pos = this.drivers.vertex(driver);
+            if (pos != DriverRegistry.OFFLINE) {
+                ctx.closestDrivers.add(new Driver(this.drivers.id(driver),
+                        this.numToRoad.get(pos)));
+            }
+        }
+        if (measure) {
+            this.metrics.recordSearch(null, System.nanoTime() - start);
+        }
+    }
+    /**
+     * Runs the search and saves the k closest drivers in the context.
+     * 
+     * @param location The location given.
+     * @param ctx The query context.
+     */
+    private void findNearestDrivers(int location, QueryContext ctx) {
+        boolean measure = this.metrics.isEnabled();
+        long start = measure ? System.nanoTime() : 0;
+        if (this.treeCache == null) {
+            this.dijkstra(location, ctx);
+        } else {
+            this.loadPathTree(location, ctx);
+        }
+        long searched = measure ? System.nanoTime() : 0;
+        BoundedTopK kDrivers = ctx.topDrivers(this.k);
+        for (int driver = 0; driver < this.drivers.size(); driver++) {
+            int pos = this.drivers.vertex(driver);
+            // drivers the pickup cannot reach are never settled by the
+            // early search either, so both modes leave them out
+            if (pos != DriverRegistry.OFFLINE
+                    && ctx.pathDistance(pos) != Integer.MAX_VALUE) {
+                ctx.setCandidateVertex(driver, pos);
+                kDrivers.offer(ctx.pathDistance(pos), driver);
+            }
+        }
+        kDrivers.sort();
+        for (int i = 0; i < kDrivers.size(); i++) {
+            int driver = kDrivers.idAt(i);
+            ctx.closestDrivers.add(new Driver(this.drivers.id(driver),
+                    this.numToRoad.get(ctx.candidateVertex(driver))));
+        }
+        if (measure) {
+            this.recordQuery(ctx, start, searched);
+        }
+    }
+    /**
+     * Answers a query from the cached tree of the location, computing
+     * and caching the tree on a miss.
+     * 
+     * @param location The location given.
+     * @param ctx The query context.
+     */
+    private void loadPathTree(int location, QueryContext ctx) {
+        ShortestPathTree tree = this.treeCache.get(location);
+        if (tree == null) {
+            long generation = this.treeCache.generation();
+            this.dijkstra(location, ctx);
+            tree = new ShortestPathTree(location, ctx.distances.clone(),
+                    ctx.previous.clone());
+            this.treeCache.put(tree, generation);
+        } else {
+            ctx.reset(location);
+        }
+        ctx.useTree(tree);
+    }
+    /**
+     * Computes the distances from every vertex to a location with
+     * parallel delta-stepping, for whole-map queries too large for one
+     * thread. The distances match dijkstra's.
+     * 
+     * @param location Destination of the shortest paths.
+     * @param pool The pool the search runs on.
+     * @return The shortest path tree of the location.
+     */
+    public ShortestPathTree parallelPathTree(int location, ForkJoinPool pool) {
+        return new DeltaStepping(this.graph, pool).run(location);
+    }
+    /**
+     * Turns on caching of shortest path trees by pickup location.
+     * 
+     * @param maxBytes Most bytes the cached trees may use.
+     */
+    public void enablePathTreeCache(long maxBytes) {
+        this.treeCache = new PathTreeCache(maxBytes);
+    }
+    /**
+     * Gets the shortest path tree cache, for its counters.
+     * 
+     * @return The cache, or null if it is off.
+     */
+    public PathTreeCache getPathTreeCache() {
+        return this.treeCache;
+    }
+    /**
+     * Gets the query metrics.
+     * 
+     * @return The metrics.
+     */
+    public TaxiMetrics getMetrics() {
+        return this.metrics;
+    }
+    /**
+     * Turns the query metrics on and registers them with the platform
+     * MBean server, so they can be read and turned off from a JMX
+     * console. A graph built with -Dtaxi.metrics=true does this at
+     * startup. Call close when done with the graph so the server lets go
+     * of its metrics.
+     * 
+     * @return The JMX name, or null if they could not be registered.
+     */
+    public ObjectName enableMetrics() {
+        this.metrics.setEnabled(true);
+        return this.metrics.register();
+    }
+    /**
+     * Removes the query metrics from the platform MBean server. The
+     * graph can still answer queries after this.
+     */
+    public void close() {
+        this.metrics.unregister();
+    }
+    /**
+     * Searches outward from the location and stops once k drivers are
+     * settled and no unsettled vertex is as close as the kth of them.
+     * Drivers tied with the kth are broken by their order in the file,
+     * and the drivers are saved in the context nearest first.
+     * 
+     * @param location The location given.
+     * @param ctx The query context.
+     */
+    private void findNearestDriversEarly(int location, QueryContext ctx) {
+        boolean measure = this.metrics.isEnabled();
+        long start = measure ? System.nanoTime() : 0;
+        ctx.reset(location);
+        ctx.reach(location, 0, -1);
+        int kthDistance = Integer.MAX_VALUE;
+        while (!ctx.queue.isEmpty() 
+                && ctx.queue.findMinKey() <= kthDistance) {
+            int curr = this.settle(ctx);
+            int count = this.drivers.driversAt(curr, ctx.driverBuffer);
+            for (int p = 0; p < count; p++) {
+                ctx.addCandidate(ctx.distances[curr], 
+                        ctx.driverBuffer[p], curr);
+            }
+            if (kthDistance == Integer.MAX_VALUE 
+                    && ctx.candidateCount() >= this.k) {
+                kthDistance = ctx.distances[curr];
+            }
+        }
+        long searched = measure ? System.nanoTime() : 0;
+        ctx.sortCandidates();
+        int count = Math.min(this.k, ctx.candidateCount());
+        for (int i = 0; i < count; i++) {
+            int driver = ctx.candidateAt(i);
+            ctx.closestDrivers.add(new Driver(this.drivers.id(driver),
+                    this.numToRoad.get(ctx.candidateVertex(driver))));
+        }
+        if (measure) {
+            this.recordQuery(ctx, start, searched);
+        }
+    }
+    /**
+     * Finds every driver that can reach the location within a number
+     * of minutes, closest first and ties in driver file order. The search
+     * never reaches a vertex beyond the limit, so its cost depends on the
+     * radius rather than on the size of the map. The drivers are saved in
+     * the context, so getPath works on them as after nearestDrivers, and
+     * the context's distance of a driver's location is its ETA.
+     * 
+     * @param location The pickup location.
+     * @param minutes The largest travel time allowed.
+     * @param ctx The query context to hold the search state and drivers.
+     * @return The drivers within the limit.
+     */
+    public List<Driver> driversWithin(int location, int minutes, 
+            QueryContext ctx) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException("Negative travel time");
+        }
+        boolean measure = this.metrics.isEnabled();
+        long start = measure ? System.nanoTime() : 0;
+        ctx.reset(location);
+        ctx.reach(location, 0, -1);
+        while (!ctx.queue.isEmpty()) {
+            int curr = this.settle(ctx, minutes);
+            int count = this.drivers.driversAt(curr, ctx.driverBuffer);
+            for (int p = 0; p < count; p++) {
+                ctx.addCandidate(ctx.distances[curr], 
+                        ctx.driverBuffer[p], curr);
+            }
+        }
+        long searched = measure ? System.nanoTime() : 0;
+        ctx.sortCandidates();
+        for (int i = 0; i < ctx.candidateCount(); i++) {
+            int driver = ctx.candidateAt(i);
+            ctx.closestDrivers.add(new Driver(this.drivers.id(driver),
+                    this.numToRoad.get(ctx.candidateVertex(driver))));
+        }
+        if (measure) {
+            this.recordQuery(ctx, start, searched);
+        }
+        return Collections.unmodifiableList(
+                new ArrayList<>(ctx.closestDrivers));
+    }
+    /**
+     * Records the search and driver selection times of a query.
+     * 
+     * @param ctx The query context, with the search's work counts.
+     * @param start When the search started.
+     * @param searched When the search ended and the selection started.
+     */
+    private void recordQuery(QueryContext ctx, long start, long searched) {
+        this.metrics.recordSearch(ctx, searched - start);
+        this.metrics.recordTopK(System.nanoTime() - searched);
+    }
+    /**
+     * Renders a route as text, timing it if metrics are on.
+     * 
+     * @param route The route.
+     * @return The route as text.
+     */
+    private String render(Route route) {
+        if (!this.metrics.isEnabled()) {
+            return route.toString();
+        }
+        long start = System.nanoTime();
+        String text = route.toString();
+        this.metrics.recordRender(System.nanoTime() - start);
+        return text;
+    }
+    /**
+     * Computes the travel time from every target to the location.
+     * 
+     * @param location The pickup location.
+     * @param targets Vertices to get the times of; OFFLINE is allowed.
+     * @param out Filled with the times, Integer.MAX_VALUE if unreachable.
+     * @param ctx The query context.
+     */
+    public void travelTimes(int location, int[] targets, int[] out, 
+            QueryContext ctx) {
+        this.dijkstra(location, ctx);
+        for (int i = 0; i < targets.length; i++) {
+            out[i] = targets[i] == DriverRegistry.OFFLINE 
+                ? Integer.MAX_VALUE : ctx.distances[targets[i]];
+        }
     }
     /**
      * Calculates then saves and prints the k drivers 
@@ -207,9 +836,10 @@ public class TaxiGraph {
      * @param location Location that drivers distances will be calculated from.
      */
     public void printNearestDrivers(int location) {
-        for (int i = 0; i < this.closestDrivers.size(); i++) {
-            System.out.println(this.closestDrivers.get(i).driverID + " at " 
-                    + this.closestDrivers.get(i).driverLoc); 
+        this.getNearestDrivers(location);
+        for (int i = 0; i < this.lastQuery.closestDrivers.size(); i++) {
+            System.out.println(this.lastQuery.closestDrivers.get(i).driverID
+                    + " at " + this.lastQuery.closestDrivers.get(i).driverLoc); 
         }
     }
     /**
@@ -231,107 +861,420 @@ public class TaxiGraph {
      * @return String with the path of the driver id.
      */
     public String getPath(int drID) {
-        String chosenLoc = "";
-        for (int i = 0; i < this.closestDrivers.size(); i++) {
-            Driver tempDriver = this.closestDrivers.get(i);
+        return this.getPath(drID, this.lastQuery);
+    }
+    /**
+     * Gets the path of a driver found by the last query in the context.
+     * 
+     * @param drID Driver whose path will be given.
+     * @param ctx The query context the driver was found with.
+     * @return String with the path of the driver id.
+     */
+    public String getPath(int drID, QueryContext ctx) {
+        return this.render(this.findPath(drID, ctx));
+    }
+    /**
+     * Gets the route of a driver found by the last query in the context.
+     * 
+     * @param drID Driver whose route will be given.
+     * @param ctx The query context the driver was found with.
+     * @return The route from the driver to the pickup.
+     */
+    public Route findPath(int drID, QueryContext ctx) {
+        String chosenLoc = null;
+        for (int i = 0; i < ctx.closestDrivers.size(); i++) {
+            Driver tempDriver = ctx.closestDrivers.get(i);
 
             if (tempDriver.driverID == drID) {
                 chosenLoc = tempDriver.driverLoc;        
             }
         }
-        return this.getPath(chosenLoc);
+        if (chosenLoc == null) {
+            throw new IllegalArgumentException("Driver " + drID 
+                    + " was not found by the last query");
+        }
+        int from = this.getVertexNumber(chosenLoc);
+        if (!ctx.usesDriverIndex()) {
+            return this.treeRoute(from, ctx);
+        }
+        DriverVoronoi index = this.driverIndex;
+        Route route = index == null ? null : index.route(ctx.getSource(),
+                this.getDriverNumber(drID), from, this.numToRoad);
+        if (route == null) {
+            // the driver moved or went offline since the query, so route
+            // from where the query saw it, searching in the partner
+            // context to keep the query's drivers for later getPath calls
+            route = this.pathRoute(this.dijkstraRoute(from, 
+                    ctx.getSource(), ctx.partner()));
+        }
+        return route;
     }
     /**
-     * Gets the path that was calculated from the given location.
+     * Loads the contraction hierarchy saved next to the map, or builds
+     * and saves it if the file is missing or belongs to another map.
+     * Route queries use the hierarchy afterwards.
      * 
-     * @param chosenLoc Start of the path given.
-     * @return String of complete path.
+     * @param chFile Name of the hierarchy file.
      */
-    private String getPath(String chosenLoc) {
-        int currRdValue = this.roadToNum.get(chosenLoc);
-        String path = "";
-        String currName = chosenLoc;
-        while (this.previous[currRdValue] != -1) {
-            String prevName = this.numToRoad.get(this.previous[currRdValue]);
-            path += "\t(" + currName + ", " + prevName + ")\n";
-            currRdValue = this.roadToNum.get(prevName);
-            currName = prevName;
+    public void prepareContractionHierarchy(String chFile) {
+        try {
+            this.hierarchy = ContractionHierarchy.read(chFile, this.graph);
+        } catch (IOException e) {
+            this.hierarchy = null;
         }
-        path += "Expected total time: " 
-                + this.distances[this.roadToNum.get(chosenLoc)] 
-                + " minutes\n";
+        if (this.hierarchy == null) {
+            System.out.println("Building contraction hierarchy...");
+            this.hierarchy = ContractionHierarchy.build(this.graph);
+            System.out.println(this.hierarchy.upwardEdgeCount() 
+                    + " upward edges.");
+            try {
+                this.hierarchy.write(chFile);
+            } catch (IOException e) {
+                System.out.println("Could not save " + chFile + ".");
+            }
+            System.out.println();
+        }
+        this.routeAlgorithm = RouteAlgorithm.CONTRACTION_HIERARCHY;
+    }
+    /**
+     * Picks landmarks and computes their distances to every vertex.
+     * Route queries use A* with the landmark bounds afterwards.
+     * 
+     * @param count Number of landmarks.
+     */
+    public void prepareLandmarks(int count) {
+        this.landmarks = Landmarks.select(this.graph, count);
+        this.routeAlgorithm = RouteAlgorithm.ALT;
+    }
+    /**
+     * Chooses the algorithm used by getRoute.
+     * 
+     * @param algorithm The route algorithm.
+     */
+    public void setRouteAlgorithm(RouteAlgorithm algorithm) {
+        if (algorithm == RouteAlgorithm.CONTRACTION_HIERARCHY 
+                && this.hierarchy == null) {
+            throw new IllegalStateException("No contraction hierarchy");
+        }
+        if (algorithm == RouteAlgorithm.ALT && this.landmarks == null) {
+            throw new IllegalStateException("No landmarks");
+        }
+        this.routeAlgorithm = algorithm;
+    }
+    /**
+     * Finds the route from a driver's current location to a pickup
+     * without a driver search, using the chosen route algorithm.
+     * 
+     * @param drID Driver whose route will be given.
+     * @param location The pickup location.
+     * @param ctx The query context to hold the search state.
+     * @return String with the route, in the same form as getPath.
+     */
+    public String getRoute(int drID, int location, QueryContext ctx) {
+        Route route = this.findRoute(drID, location, ctx);
+        if (route == null) {
+            return "No route found.\n";
+        }
+        return this.render(route);
+    }
+    /**
+     * Finds the route from a driver's current location to a pickup
+     * without a driver search, using the chosen route algorithm.
+     * 
+     * @param drID Driver whose route will be given.
+     * @param location The pickup location.
+     * @param ctx The query context to hold the search state.
+     * @return The route, or null if the pickup cannot be reached.
+     */
+    public Route findRoute(int drID, int location, QueryContext ctx) {
+        int from = this.drivers.vertex(this.getDriverNumber(drID));
+        if (from == DriverRegistry.OFFLINE) {
+            throw new IllegalArgumentException("Driver " + drID 
+                    + " is offline");
+        }
+        boolean measure = this.metrics.isEnabled();
+        long start = measure ? System.nanoTime() : 0;
+        RouteAlgorithm algorithm = this.routeAlgorithm;
+        ContractionHierarchy ch = this.hierarchy;
+        Landmarks marks = this.landmarks;
+        int[] path;
+        if (algorithm == RouteAlgorithm.CONTRACTION_HIERARCHY && ch != null) {
+            path = ch.route(from, location);
+        } else if (algorithm == RouteAlgorithm.ALT && marks != null) {
+            path = this.altRoute(from, location, marks, ctx);
+        } else if (algorithm == RouteAlgorithm.BIDIRECTIONAL) {
+            path = this.bidirectionalRoute(from, location, ctx);
+        } else {
+            path = this.dijkstraRoute(from, location, ctx);
+        }
+        if (measure) {
+            boolean usedContext = algorithm 
+                    != RouteAlgorithm.CONTRACTION_HIERARCHY || ch == null;
+            this.metrics.recordSearch(usedContext ? ctx : null,
+                    System.nanoTime() - start);
+        }
+        return this.pathRoute(path);
+    }
+    /**
+     * Adds the travel times along a path found by a route search.
+     * 
+     * @param path Vertices of the route from the driver, or null.
+     * @return The route, or null if there is no path.
+     */
+    private Route pathRoute(int[] path) {
+        if (path == null) {
+            return null;
+        }
+        int[] times = new int[path.length];
+        for (int i = 1; i < path.length; i++) {
+            times[i] = times[i - 1] + this.edgeWeight(path[i - 1], path[i]);
+        }
+        return new Route(this.numToRoad, path, times);
+    }
+    /**
+     * Searches from the pickup until the driver's vertex is settled.
+     * 
+     * @param from The driver's vertex.
+     * @param to The pickup vertex.
+     * @param ctx The query context.
+     * @return Vertices of the route from the driver, or null.
+     */
+    private int[] dijkstraRoute(int from, int to, QueryContext ctx) {
+        ctx.reset(to);
+        ctx.reach(to, 0, -1);
+        while (!ctx.queue.isEmpty() && !ctx.found[from]) {
+            this.settle(ctx);
+        }
+        return this.tracePath(from, ctx);
+    }
+    /**
+     * Dijkstra's from both ends at once, always growing the side with the
+     * smaller heap minimum. Every edge between the two settled regions is
+     * a candidate meeting point, and the search stops once the two heap
+     * minimums add up to at least the best route found.
+     * 
+     * @param from The driver's vertex.
+     * @param to The pickup vertex.
+     * @param ctx The query context; its partner holds the driver side.
+     * @return Vertices of the route from the driver, or null.
+     */
+    private int[] bidirectionalRoute(int from, int to, QueryContext ctx) {
+        QueryContext back = ctx.partner();
+        ctx.reset(to);
+        back.reset(from);
+        ctx.reach(to, 0, -1);
+        back.reach(from, 0, -1);
+        int best = Integer.MAX_VALUE;
+        int meetFrom = -1;
+        int meetTo = -1;
+        while (!ctx.queue.isEmpty() && !back.queue.isEmpty()
+                && (long) ctx.queue.findMinKey() + back.queue.findMinKey() 
+                    < best) {
+            boolean forward = ctx.queue.findMinKey() 
+                    <= back.queue.findMinKey();
+            QueryContext side = forward ? ctx : back;
+            QueryContext other = forward ? back : ctx;
+            int curr = this.settle(side);
+            if (other.distances[curr] != Integer.MAX_VALUE
+                    && side.distances[curr] + other.distances[curr] < best) {
+                best = side.distances[curr] + other.distances[curr];
+                meetFrom = curr;
+                meetTo = curr;
+            }
+            for (int e = this.graph.start(curr); e < this.graph.end(curr); 
+                    e++) {
+                int next = this.graph.target(e);
+                if (other.distances[next] == Integer.MAX_VALUE) {
+                    continue;
+                }
+                long length = (long) side.distances[curr] 
+                        + this.graph.weight(e) + other.distances[next];
+                if (length < best) {
+                    best = (int) length;
+                    meetFrom = forward ? next : curr;
+                    meetTo = forward ? curr : next;
+                }
+            }
+        }
+        ctx.addWork(back);
+        if (meetFrom < 0) {
+            return null;
+        }
+        int[] toDriver = this.tracePath(meetFrom, back);
+        int[] toPickup = this.tracePath(meetTo, ctx);
+        int skip = meetFrom == meetTo ? 1 : 0;
+        int[] path = new int[toDriver.length + toPickup.length - skip];
+        for (int i = 0; i < toDriver.length; i++) {
+            path[i] = toDriver[toDriver.length - 1 - i];
+        }
+        System.arraycopy(toPickup, skip, path, toDriver.length, 
+                toPickup.length - skip);
         return path;
     }
     /**
-     * Calculates the distances from every vertex to the given location.
+     * A* from the pickup toward the driver's vertex, with the landmark
+     * lower bounds as the estimate of the remaining distance.
      * 
-     * @param location Destination of the shortest path.
+     * @param from The driver's vertex.
+     * @param to The pickup vertex.
+     * @param marks The landmarks.
+     * @param ctx The query context.
+     * @return Vertices of the route from the driver, or null.
      */
-    private void dijkstra(int location) {
-        this.heapPositionMap = new HashMap<>();
-        
-        //found and previous defaults;
-        boolean[] found = new boolean[this.numToRoad.size()];
-        this.distances = new int[this.numToRoad.size()];
-
-        this.previous =  new int[this.numToRoad.size()];
-        for (int i = 0; i < found.length; i++) {
-            found[i] = false;
-            this.previous[i] = -1;
+    private int[] altRoute(int from, int to, Landmarks marks,
+            QueryContext ctx) {
+        ctx.reset(to);
+        ctx.reach(to, 0, -1, marks.lowerBound(to, from));
+        while (!ctx.queue.isEmpty() && !ctx.found[from]) {
+            int curr = ctx.queue.deleteMin();
+            ctx.settle(curr);
+            ctx.addRelaxed(this.graph.end(curr) - this.graph.start(curr));
+            for (int e = this.graph.start(curr); e < this.graph.end(curr); 
+                    e++) {
+                int next = this.graph.target(e);
+                int newDistance = ctx.distances[curr] + this.graph.weight(e);
+                if (!ctx.found[next] && newDistance < ctx.distances[next]) {
+                    ctx.reach(next, newDistance, curr, newDistance 
+                            + marks.lowerBound(next, from));
+                }
+            }
         }
-        //distance defaults;
-        for (int i = 0; i < this.numToRoad.size(); i++) {
-            this.distancePQ.insert(Integer.MAX_VALUE, i);
-            this.distances[i] = Integer.MAX_VALUE;
+        return this.tracePath(from, ctx);
+    }
+    /**
+     * Follows the previous vertices from a vertex to the source.
+     * 
+     * @param from The vertex, settled unless it ends a route.
+     * @param ctx The query context.
+     * @return Vertices of the path to the source, or null if from
+     *      was not reached.
+     */
+    private int[] tracePath(int from, QueryContext ctx) {
+        if (ctx.distances[from] == Integer.MAX_VALUE) {
+            return null;
         }
-        this.createPositionHM();
-
-        this.updatedistancePQ(0, location);
-        this.distances[location] = 0;
+        int count = 1;
+        for (int v = from; ctx.previous[v] != -1; v = ctx.previous[v]) {
+            count++;
+        }
+        int[] path = new int[count];
+        path[0] = from;
+        for (int i = 1; i < count; i++) {
+            path[i] = ctx.previous[path[i - 1]];
+        }
+        return path;
+    }
+    /**
+     * Gets the weight of the lightest edge between two vertices.
+     * 
+     * @param a One endpoint.
+     * @param b The other endpoint.
+     * @return The weight of the edge.
+     */
+    private int edgeWeight(int a, int b) {
+        int best = Integer.MAX_VALUE;
+        for (int e = this.graph.start(a); e < this.graph.end(a); e++) {
+            if (this.graph.target(e) == b) {
+                best = Math.min(best, this.graph.weight(e));
+            }
+        }
+        return best;
+    }
+    /**
+     * Follows the search tree in the context from a vertex to the source.
+     * 
+     * @param from Start of the route, a vertex reached by the search.
+     * @param ctx The query context holding the search.
+     * @return The route from the vertex to the source.
+     */
+    private Route treeRoute(int from, QueryContext ctx) {
+        int count = 1;
+        for (int v = from; ctx.pathPrevious(v) != -1; v = ctx.pathPrevious(v)) {
+            count++;
+        }
+        int[] path = new int[count];
+        int[] times = new int[count];
+        int total = ctx.pathDistance(from);
+        path[0] = from;
+        for (int i = 1; i < count; i++) {
+            path[i] = ctx.pathPrevious(path[i - 1]);
+            times[i] = total - ctx.pathDistance(path[i]);
+        }
+        return new Route(this.numToRoad, path, times);
+    }
+    /**
+     * Calculates the distances from every vertex to the given location.
+     * 
+     * @param location Destination of the shortest path.
+     * @param ctx The query context that holds the search state.
+     */
+    private void dijkstra(int location, QueryContext ctx) {
+        ctx.reset(location);
+        ctx.reach(location, 0, -1);
 
-        for (int i = 0; i < this.numToRoad.size(); i++) {
-            int curr = this.distancePQ.findMinValue();
-            found[curr] = true;
-            ArrayList<Endpoint> temp = this.adjList.get(curr);
-            for (int j = 0; j < temp.size(); j++) {
-                int newDistance = this.distances[curr] + temp.get(j).weight;
-                int currEndpoint = temp.get(j).endpoint;
-                if (newDistance < this.distances[currEndpoint]) {
-                    this.distances[currEndpoint] = newDistance;
-                    this.updatedistancePQ(newDistance, currEndpoint);
-                    this.previous[currEndpoint] = curr;
-                }
-                
-            }    
-            this.distancePQ.deleteMin();
+        while (!ctx.queue.isEmpty()) {
+            this.settle(ctx);
         }
 
     }
     /**
-     * Initializes the distancePQ.
+     * Settles the closest unsettled vertex and relaxes its edges.
+     * 
+     * @param ctx The query context that holds the search state.
+     * @return The vertex that was settled.
      */
-    private void createPositionHM() {
-        for (int i = 1; i <= this.distancePQ.size(); i++) {
-            String streetname = this.numToRoad.get(
-                    Integer.parseInt(this.distancePQ.dispPQ(i)));
-            this.heapPositionMap.put(streetname, i);
-        }
+    private int settle(QueryContext ctx) {
+        return this.settle(ctx, Integer.MAX_VALUE);
     }
     /**
-     * Updates distance heap when a distance is changed during Dijkstra's.
+     * Settles the closest unsettled vertex and relaxes the edges that
+     * stay within a distance limit.
      * 
-     * @param newKey New, shorter distance to rdValue.
-     * @param rdValue Number of the vertex whose distance 
-     *      will be updated in the graph.
+     * @param ctx The query context that holds the search state.
+     * @param limit Vertices further than this are not reached.
+     * @return The vertex that was settled.
      */
-    private void updatedistancePQ(Integer newKey, int rdValue) {
-        int currentArrayVal = this.heapPositionMap.get(
-                this.numToRoad.get(rdValue));
-        this.distancePQ.deletePos(currentArrayVal);
-        this.distancePQ.insert(newKey, rdValue);
-        this.createPositionHM();
-    } 
+    private int settle(QueryContext ctx, int limit) {
+        int curr = ctx.queue.deleteMin();
+        ctx.settle(curr);
+        int end = this.graph.end(curr);
+        ctx.addRelaxed(end - this.graph.start(curr));
+        for (int e = this.graph.start(curr); e < end; e++) {
+            int currEndpoint = this.graph.target(e);
+            if (ctx.found[currEndpoint]) {
+                continue;
+            }
+            int newDistance = ctx.distances[curr] + this.graph.weight(e);
+            if (newDistance < ctx.distances[currEndpoint] 
+                    && newDistance <= limit) {
+                ctx.reach(currEndpoint, newDistance, curr);
+            }
+        }
+        return curr;
+    }
 
+    /**
+     * Priority queues that the searches can use.
+     */
+    public enum QueueType {
+        /** Indexed binary heap, for any edge weights. */
+        BINARY_HEAP,
+        /** Dial's buckets, for small integer edge weights. */
+        BUCKET
+    }
+    /**
+     * Algorithms that getRoute can use for a single route.
+     */
+    public enum RouteAlgorithm {
+        /** Dijkstra's from the pickup until the driver is settled. */
+        DIJKSTRA,
+        /** Bidirectional upward search in the contraction hierarchy. */
+        CONTRACTION_HIERARCHY,
+        /** A* with landmark lower bounds. */
+        ALT,
+        /** Dijkstra's from the pickup and the driver at the same time. */
+        BIDIRECTIONAL
+    }
     /**
      * Holds the endpoint of an edge and its weight.
      *
@@ -356,7 +1299,7 @@ public class TaxiGraph {
      * Holds a driver's id and location.
      *
      */
-    protected class Driver {
+    protected static class Driver {
         /** number representing driver ID. */
         public int driverID;
         /** location of the driver. */
@@ -0,0 +1,270 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+/**
+ * Query metrics of a TaxiGraph: search work counters and latency
+ * histograms of the search, driver selection and route rendering
+ * phases. Queries only read a volatile flag while metrics are off.
+ * Metrics start on, and are registered as an MBean, when the
+ * taxi.metrics system property is true or TaxiGraph.enableMetrics() is
+ * called; after that the Enabled JMX attribute turns measuring off and
+ * on.
+ */
+public class TaxiMetrics implements TaxiMetricsMBean {
+    /** System property that turns metrics on at startup. */
+    public static final String PROPERTY = "taxi.metrics";
+    /** Nanoseconds in a microsecond. */
+    private static final long NANOS_PER_MICRO = 1000;
+    /** Nanoseconds in a millisecond. */
+    private static final long NANOS_PER_MILLI = 1000000;
+    /** Number of the next metrics object registered, for its JMX name. */
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+    /** Whether queries are measured. */
+    private volatile boolean enabled;
+    /** Nanoseconds it took to load the graph. */
+    private volatile long loadNanos;
+    /** Number of searches measured. */
+    private final LongAdder searches;
+    /** Vertices settled by the measured searches. */
+    private final LongAdder settled;
+    /** Edges relaxed by the measured searches. */
+    private final LongAdder relaxed;
+    /** Queue operations of the measured searches. */
+    private final LongAdder queueOps;
+    /** Largest queue of a measured search. */
+    private final LongAccumulator queuePeak;
+    /** Search times. */
+    private final LatencyHistogram searchTimes;
+    /** Driver selection times. */
+    private final LatencyHistogram topKTimes;
+    /** Route rendering times. */
+    private final LatencyHistogram renderTimes;
+    /** JMX name the metrics are registered under, or null. */
+    private ObjectName name;
+
+    /**
+     * Constructor for metrics that are on if the system property says so.
+     */
+    public TaxiMetrics() {
+        this.enabled = Boolean.getBoolean(PROPERTY);
+        this.searches = new LongAdder();
+        this.settled = new LongAdder();
+        this.relaxed = new LongAdder();
+        this.queueOps = new LongAdder();
+        this.queuePeak = new LongAccumulator(Math::max, 0);
+        this.searchTimes = new LatencyHistogram();
+        this.topKTimes = new LatencyHistogram();
+        this.renderTimes = new LatencyHistogram();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     * @return the JMX name, or null if they could not be registered
+     */
+    public synchronized ObjectName register() {
+        if (this.name == null) {
+            try {
+                ObjectName objectName = new ObjectName("TaxiGraph:"
+                        + "type=Metrics,id=" + NEXT_ID.getAndIncrement());
+                ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(this, objectName);
+                this.name = objectName;
+            } catch (JMException e) {
+                return null;
+            }
+        }
+        return this.name;
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server.
+     */
+    public synchronized void unregister() {
+        if (this.name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                    .unregisterMBean(this.name);
+            } catch (JMException e) {
+                // already gone
+            }
+            this.name = null;
+        }
+    }
+
+    /**
+     * Whether queries are being measured.
+     * @return true if metrics are on
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Turns measuring on or off.
+     * @param on true to measure queries
+     */
+    public void setEnabled(boolean on) {
+        this.enabled = on;
+    }
+
+    /**
+     * Forgets everything measured so far, except the load time.
+     */
+    public void reset() {
+        this.searches.reset();
+        this.settled.reset();
+        this.relaxed.reset();
+        this.queueOps.reset();
+        this.queuePeak.reset();
+        this.searchTimes.reset();
+        this.topKTimes.reset();
+        this.renderTimes.reset();
+    }
+
+    /**
+     * Records how long loading took.
+     * @param nanos the load time in nanoseconds
+     */
+    void recordLoad(long nanos) {
+        this.loadNanos = nanos;
+    }
+
+    /**
+     * Records a finished search and the work counted in its context.
+     * @param ctx the context of the search, or null if it used none
+     * @param nanos the search time in nanoseconds
+     */
+    void recordSearch(QueryContext ctx, long nanos) {
+        this.searches.increment();
+        if (ctx != null) {
+            this.settled.add(ctx.getSettledCount());
+            this.relaxed.add(ctx.getRelaxedCount());
+            this.queueOps.add(ctx.getQueueOps());
+            this.queuePeak.accumulate(ctx.getQueuePeak());
+        }
+        this.searchTimes.record(nanos);
+    }
+
+    /**
+     * Records a driver selection.
+     * @param nanos the selection time in nanoseconds
+     */
+    void recordTopK(long nanos) {
+        this.topKTimes.record(nanos);
+    }
+
+    /**
+     * Records a route rendering.
+     * @param nanos the rendering time in nanoseconds
+     */
+    void recordRender(long nanos) {
+        this.renderTimes.record(nanos);
+    }
+
+    /**
+     * Milliseconds it took to load the map and drivers.
+     * @return the load time
+     */
+    public long getLoadMillis() {
+        return this.loadNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Number of searches measured.
+     * @return the count
+     */
+    public long getSearches() {
+        return this.searches.sum();
+    }
+
+    /**
+     * Vertices settled by the measured searches.
+     * @return the total
+     */
+    public long getVerticesSettled() {
+        return this.settled.sum();
+    }
+
+    /**
+     * Edges relaxed by the measured searches.
+     * @return the total
+     */
+    public long getEdgesRelaxed() {
+        return this.relaxed.sum();
+    }
+
+    /**
+     * Queue inserts, decreaseKeys and deleteMins of the measured searches.
+     * @return the total
+     */
+    public long getQueueOperations() {
+        return this.queueOps.sum();
+    }
+
+    /**
+     * Most vertices a measured search had queued at once.
+     * @return the peak queue size
+     */
+    public long getQueuePeak() {
+        return this.queuePeak.get();
+    }
+
+    /**
+     * Median search time.
+     * @return microseconds
+     */
+    public long getSearchP50Micros() {
+        return this.searchTimes.percentile(50) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * 99th percentile search time.
+     * @return microseconds
+     */
+    public long getSearchP99Micros() {
+        return this.searchTimes.percentile(99) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * Longest search time.
+     * @return microseconds
+     */
+    public long getSearchMaxMicros() {
+        return this.searchTimes.max() / NANOS_PER_MICRO;
+    }
+
+    /**
+     * Median time to pick the closest drivers after a search.
+     * @return microseconds
+     */
+    public long getTopKP50Micros() {
+        return this.topKTimes.percentile(50) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * 99th percentile time to pick the closest drivers.
+     * @return microseconds
+     */
+    public long getTopKP99Micros() {
+        return this.topKTimes.percentile(99) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * Median time to render a route as text.
+     * @return microseconds
+     */
+    public long getRenderP50Micros() {
+        return this.renderTimes.percentile(50) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * 99th percentile time to render a route as text.
+     * @return microseconds
+     */
+    public long getRenderP99Micros() {
+        return this.renderTimes.percentile(99) / NANOS_PER_MICRO;
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * JMX view of a TaxiGraph's query metrics. Times are in microseconds;
+ * percentiles are the upper bound of their power of two bucket.
+ */
+public interface TaxiMetricsMBean {
+    /**
+     * Whether queries are being measured.
+     * @return true if metrics are on
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns measuring on or off.
+     * @param on true to measure queries
+     */
+    void setEnabled(boolean on);
+
+    /**
+     * Forgets everything measured so far, except the load time.
+     */
+    void reset();
+
+    /**
+     * Milliseconds it took to load the map and drivers.
+     * @return the load time
+     */
+    long getLoadMillis();
+
+    /**
+     * Number of searches measured.
+     * @return the count
+     */
+    long getSearches();
+
+    /**
+     * Vertices settled by the measured searches.
+     * @return the total
+     */
+    long getVerticesSettled();
+
+    /**
+     * Edges relaxed by the measured searches.
+     * @return the total
+     */
+    long getEdgesRelaxed();
+
+    /**
+     * Queue inserts, decreaseKeys and deleteMins of the measured searches.
+     * @return the total
+     */
+    long getQueueOperations();
+
+    /**
+     * Most vertices a measured search had queued at once.
+     * @return the peak queue size
+     */
+    long getQueuePeak();
+
+    /**
+     * Median search time.
+     * @return microseconds
+     */
+    long getSearchP50Micros();
+
+    /**
+     * 99th percentile search time.
+     * @return microseconds
+     */
+    long getSearchP99Micros();
+
+    /**
+     * Longest search time.
+     * @return microseconds
+     */
+    long getSearchMaxMicros();
+
+    /**
+     * Median time to pick the closest drivers after a search.
+     * @return microseconds
+     */
+    long getTopKP50Micros();
+
+    /**
+     * 99th percentile time to pick the closest drivers.
+     * @return microseconds
+     */
+    long getTopKP99Micros();
+
+    /**
+     * Median time to render a route as text.
+     * @return microseconds
+     */
+    long getRenderP50Micros();
+
+    /**
+     * 99th percentile time to render a route as text.
+     * @return microseconds
+     */
+    long getRenderP99Micros();
+}